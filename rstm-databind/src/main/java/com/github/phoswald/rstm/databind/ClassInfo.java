@@ -1,6 +1,8 @@
 package com.github.phoswald.rstm.databind;
 
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.RecordComponent;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -11,14 +13,16 @@ record ClassInfo(
         String name,
         Class<?> clazz,
         Function<Object[], Object> constructor,
-        Deferred<Map<String, FieldInfo>> fields
+        Deferred<Map<String, FieldInfo>> fields,
+        Deferred<FieldTable> fieldTable
 ) {
     static ClassInfo create(Class<?> clazz) {
-        Constructor<?> constructor = getConstructor(clazz);
+        MethodHandle constructor = getConstructor(clazz);
         return new ClassInfo(
                 getName(clazz),
                 clazz,
                 args -> construct(constructor, args),
+                new Deferred<>(),
                 new Deferred<>());
     }
 
@@ -54,22 +58,27 @@ record ClassInfo(
         return name.substring(0, 1).toLowerCase() + name.substring(1);
     }
 
-    private static Constructor<?> getConstructor(Class<?> clazz) {
+    /**
+     * Returns the canonical constructor, adapted to take the arguments as an array and to return an object.
+     */
+    private static MethodHandle getConstructor(Class<?> clazz) {
         try {
             Class<?>[] args = Arrays.stream(clazz.getRecordComponents())
                     .map(RecordComponent::getType)
                     .toArray(Class<?>[]::new);
-            return clazz.getDeclaredConstructor(args);
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+                    .findConstructor(clazz, MethodType.methodType(void.class, args))
+                    .asSpreader(Object[].class, args.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
         } catch (ReflectiveOperationException e) {
             throw new DatabinderException(e);
         }
     }
 
-    private static <T> T construct(Constructor<T> constructor, Object[] args) {
+    private static Object construct(MethodHandle constructor, Object[] args) {
         try {
-            constructor.setAccessible(true);
-            return constructor.newInstance(args);
-        } catch (ReflectiveOperationException e) {
+            return constructor.invokeExact(args);
+        } catch (Throwable e) {
             throw new DatabinderException(e);
         }
     }
@@ -3,6 +3,8 @@ package com.github.phoswald.rstm.databind;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.function.Function.identity;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
@@ -19,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -27,7 +30,10 @@ public class Databinder {
 
     private final boolean pretty;
     private final boolean tolerant;
-    private final Map<Class<?>, ClassInfo> classes = new HashMap<>();
+    private final Map<Class<?>, ClassInfo> classes = new ConcurrentHashMap<>(); // only complete ones
+    private final Map<Class<?>, ClassInfo> pendingClasses = new HashMap<>(); // guarded by itself
+    private final Pool<JsonOutputStream> jsonBuffers;
+    private final Pool<XmlBuffer> xmlBuffers = new Pool<>(XmlBuffer::new);
 
     public Databinder() {
         this(true, true);
@@ -44,6 +50,7 @@ public class Databinder {
     private Databinder(boolean pretty, boolean tolerant) {
         this.pretty = pretty;
         this.tolerant = tolerant;
+        this.jsonBuffers = new Pool<>(() -> new JsonOutputStream(null, pretty));
     }
 
     public <T> Object accessField(Class<T> clazz, T instance, String name) {
@@ -72,6 +79,18 @@ public class Databinder {
         toXml(instance, new OutputStreamWriter(stream, UTF_8));
     }
 
+    /**
+     * Writes into a pooled buffer, which is reused after the result has been copied out of it.
+     */
+    public byte[] toXmlBytes(Object instance) {
+        XmlBuffer buffer = xmlBuffers.acquire();
+        toXml(instance, buffer.writer()); // if this fails, the buffer is dropped, its writer may hold a partial character
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        xmlBuffers.release(buffer);
+        return bytes;
+    }
+
     public void toXml(Object instance, Writer writer) {
         try (DataOutputStream stream = new XmlOutputStream(writer, pretty)) {
             stream.writeObject(getClassInfo(instance.getClass()), instance);
@@ -83,17 +102,37 @@ public class Databinder {
     }
 
     public String toJson(Object instance) {
-        StringWriter buffer = new StringWriter();
-        toJson(instance, buffer);
-        return buffer.toString();
+        return writeJson(instance, JsonOutputStream::toString);
+    }
+
+    public byte[] toJsonBytes(Object instance) {
+        return writeJson(instance, JsonOutputStream::toByteArray);
     }
 
     public void toJson(Object instance, OutputStream stream) {
-        toJson(instance, new OutputStreamWriter(stream, UTF_8));
+        writeJson(instance, new JsonOutputStream(stream, pretty));
     }
 
     public void toJson(Object instance, Writer writer) {
-        try (DataOutputStream stream = new JsonOutputStream(writer, pretty)) {
+        writeJson(instance, new JsonOutputStream(new DecodingOutputStream(writer), pretty));
+    }
+
+    /**
+     * Writes into a pooled buffer, which is reused after the result has been copied out of it.
+     */
+    private <R> R writeJson(Object instance, Function<JsonOutputStream, R> result) {
+        JsonOutputStream stream = jsonBuffers.acquire();
+        try {
+            writeJson(instance, stream);
+            return result.apply(stream);
+        } finally {
+            stream.reset();
+            jsonBuffers.release(stream);
+        }
+    }
+
+    private void writeJson(Object instance, JsonOutputStream stream) {
+        try (stream) {
             stream.writeObject(getClassInfo(instance.getClass()), instance);
         } catch (DatabinderException e) {
             throw e;
@@ -120,17 +159,41 @@ public class Databinder {
         }
     }
 
+    public <T> T fromXml(byte[] bytes, Class<T> clazz) {
+        try (DataInputStream stream = new XmlInputStream(new ByteArrayInputStream(bytes), tolerant)) {
+            return clazz.cast(stream.readObject(getClassInfo(clazz)));
+        } catch (DatabinderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabinderException(e);
+        }
+    }
+
     public <T> T fromJson(String string, Class<T> clazz) {
-        return fromJson(new StringReader(string), clazz);
+        return fromJson(string.getBytes(UTF_8), clazz);
     }
 
     public <T> T fromJson(InputStream stream, Class<T> clazz) {
-        return fromJson(new InputStreamReader(stream, UTF_8), clazz);
+        try (stream) {
+            return fromJson(stream.readAllBytes(), clazz);
+        } catch (IOException e) {
+            throw new DatabinderException(e);
+        }
     }
 
     public <T> T fromJson(Reader reader, Class<T> clazz) {
-        try (DataInputStream stream = new JsonInputStream(reader, tolerant)) {
-            return clazz.cast(stream.readObject(getClassInfo(clazz)));
+        StringWriter buffer = new StringWriter();
+        try (reader) {
+            reader.transferTo(buffer);
+        } catch (IOException e) {
+            throw new DatabinderException(e);
+        }
+        return fromJson(buffer.toString(), clazz);
+    }
+
+    public <T> T fromJson(byte[] bytes, Class<T> clazz) {
+        try {
+            return clazz.cast(new JsonInputStream(bytes, tolerant).readObject(getClassInfo(clazz)));
         } catch (DatabinderException e) {
             throw e;
         } catch (Exception e) {
@@ -138,26 +201,53 @@ public class Databinder {
         }
     }
 
-    private ClassInfo getClassInfo(Class<?> clazz) {
-        synchronized (classes) {
-            ClassInfo classInfo = classes.get(clazz);
-            if (classInfo == null) {
-                if (!clazz.isRecord()) {
-                    throw new DatabinderException("Not a record: " + clazz);
+    /**
+     * Returns the cached class info without locking, or creates it under a lock. The class infos created for recursive
+     * record types are only published when the outermost one is complete, so no thread sees undefined fields.
+     */
+    ClassInfo getClassInfo(Class<?> clazz) {
+        ClassInfo classInfo = classes.get(clazz);
+        if (classInfo != null) {
+            return classInfo;
+        }
+        synchronized (pendingClasses) {
+            boolean outermost = pendingClasses.isEmpty();
+            try {
+                classInfo = createClassInfo(clazz);
+                if (outermost) {
+                    classes.putAll(pendingClasses);
+                }
+                return classInfo;
+            } finally {
+                if (outermost) {
+                    pendingClasses.clear();
                 }
-                classInfo = ClassInfo.create(clazz);
-                classes.put(clazz, classInfo);
-                createClassInfoFields(classInfo, clazz);
             }
-            return classInfo;
         }
     }
 
+    private ClassInfo createClassInfo(Class<?> clazz) {
+        ClassInfo classInfo = classes.get(clazz);
+        if (classInfo == null) {
+            classInfo = pendingClasses.get(clazz);
+        }
+        if (classInfo == null) {
+            if (!clazz.isRecord()) {
+                throw new DatabinderException("Not a record: " + clazz);
+            }
+            classInfo = ClassInfo.create(clazz);
+            pendingClasses.put(clazz, classInfo);
+            createClassInfoFields(classInfo, clazz);
+        }
+        return classInfo;
+    }
+
     private void createClassInfoFields(ClassInfo classInfo, Class<?> clazz) {
         Map<String, FieldInfo> fields = Stream.of(clazz.getRecordComponents())
                 .map(component -> FieldInfo.create(component, createType(component.getGenericType())))
                 .collect(toUniqueOrderedMap(FieldInfo::name, identity()));
         classInfo.fields().define(fields);
+        classInfo.fieldTable().define(FieldTable.create(fields.values()));
     }
 
     private AnyType createType(Type genericType) {
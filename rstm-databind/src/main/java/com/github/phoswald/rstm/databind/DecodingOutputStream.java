@@ -0,0 +1,80 @@
+package com.github.phoswald.rstm.databind;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Decodes the UTF-8 bytes written to it and passes the characters on to a writer, one chunk per write.
+ *
+ * A character that is split between two writes is kept until the next write completes it.
+ */
+class DecodingOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer writer;
+    private final CharsetDecoder decoder = UTF_8.newDecoder();
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final byte[] remainder = new byte[4]; // the bytes of an incomplete character
+    private int remaining;
+
+    DecodingOutputStream(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer input;
+        if (remaining == 0) {
+            input = ByteBuffer.wrap(bytes, offset, length);
+        } else {
+            input = ByteBuffer.allocate(remaining + length).put(remainder, 0, remaining).put(bytes, offset, length).flip();
+        }
+        decode(input, false);
+        remaining = input.remaining();
+        input.get(remainder, 0, remaining);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (writer) {
+            decode(ByteBuffer.wrap(remainder, 0, remaining), true);
+            remaining = 0;
+            decoder.flush(chars);
+            writeChars();
+        }
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) throws IOException {
+        CoderResult result;
+        while ((result = decoder.decode(input, chars, endOfInput)).isOverflow()) {
+            writeChars();
+        }
+        writeChars();
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    private void writeChars() throws IOException {
+        writer.write(chars.array(), 0, chars.position());
+        chars.clear();
+    }
+}
@@ -1,13 +1,18 @@
 package com.github.phoswald.rstm.databind;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.RecordComponent;
 import java.util.function.Function;
 
 record FieldInfo(
         String name,
         AnyType type,
-        Function<Object, Object> getter
+        Function<Object, Object> getter,
+        byte[] jsonName
 ) implements FieldMetadata {
 
     @Override
@@ -21,18 +26,31 @@ record FieldInfo(
     }
 
     static FieldInfo create(RecordComponent component, AnyType type) {
-        Method accessor = component.getAccessor();
         return new FieldInfo(
                 component.getName(),
                 type,
-                instance -> get(instance, accessor));
+                createGetter(component),
+                JsonOutputStream.encodeName(component.getName()));
     }
 
-    private static Object get(Object instance, Method accessor) {
+    /**
+     * Creates a getter that calls the accessor directly, through a class generated once per record component.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createGetter(RecordComponent component) {
         try {
-            accessor.setAccessible(true);
-            return accessor.invoke(instance);
-        } catch (ReflectiveOperationException e) {
+            Class<?> clazz = component.getDeclaringRecord();
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            MethodHandle accessor = lookup.unreflect(component.getAccessor());
+            CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    accessor,
+                    MethodType.methodType(Object.class, clazz));
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
             throw new DatabinderException(e);
         }
     }
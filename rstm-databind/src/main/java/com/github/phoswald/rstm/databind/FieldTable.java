@@ -0,0 +1,105 @@
+package com.github.phoswald.rstm.databind;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Finds the fields of a record by the UTF-8 bytes of their names, without creating strings.
+ *
+ * The names are stored in an open addressing hash table, which is grown until no two names collide if this is possible
+ * with a reasonable size (perfect hashing), so a lookup usually takes one probe and one comparison.
+ */
+class FieldTable {
+
+    private static final int MAX_SIZE_FACTOR = 16;
+
+    private final FieldInfo[] fields; // in the order of the constructor parameters
+    private final Object[] defaults;
+    private final byte[][] slotNames;
+    private final int[] slotIndexes;
+    private final int mask;
+
+    private FieldTable(FieldInfo[] fields, int size) {
+        this.fields = fields;
+        this.defaults = new Object[fields.length];
+        this.slotNames = new byte[size][];
+        this.slotIndexes = new int[size];
+        this.mask = size - 1;
+        for (int index = 0; index < fields.length; index++) {
+            if (fields[index].type() instanceof PrimitiveType primitiveType) {
+                defaults[index] = primitiveType.defaultValue();
+            }
+            byte[] name = fields[index].name().getBytes(UTF_8);
+            int slot = hash(name, 0, name.length) & mask;
+            while (slotNames[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotNames[slot] = name;
+            slotIndexes[slot] = index;
+        }
+    }
+
+    static FieldTable create(Collection<FieldInfo> fields) {
+        FieldInfo[] array = fields.toArray(FieldInfo[]::new);
+        int minSize = Integer.highestOneBit(Math.max(1, array.length) * 2 - 1) << 1;
+        for (int size = minSize; size <= minSize * MAX_SIZE_FACTOR; size <<= 1) {
+            if (isPerfect(array, size)) {
+                return new FieldTable(array, size);
+            }
+        }
+        return new FieldTable(array, minSize);
+    }
+
+    int size() {
+        return fields.length;
+    }
+
+    FieldInfo field(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Returns a new array for the constructor arguments, with the default values for the primitive fields.
+     */
+    Object[] createArgs() {
+        return defaults.clone();
+    }
+
+    /**
+     * Returns the index of the field with the given UTF-8 encoded name, or -1 if there is none.
+     */
+    int find(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length) & mask;
+        byte[] name;
+        while ((name = slotNames[slot]) != null) {
+            if (Arrays.equals(name, 0, name.length, bytes, offset, offset + length)) {
+                return slotIndexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean isPerfect(FieldInfo[] fields, int size) {
+        boolean[] used = new boolean[size];
+        for (FieldInfo field : fields) {
+            byte[] name = field.name().getBytes(UTF_8);
+            int slot = hash(name, 0, name.length) & (size - 1);
+            if (used[slot]) {
+                return false;
+            }
+            used[slot] = true;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = length;
+        for (int index = offset; index < offset + length; index++) {
+            hash = 31 * hash + bytes[index];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
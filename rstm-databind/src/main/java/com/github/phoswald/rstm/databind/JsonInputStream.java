@@ -1,78 +1,371 @@
 package com.github.phoswald.rstm.databind;
 
-import java.io.IOException;
-import java.io.Reader;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-import jakarta.json.Json;
-import jakarta.json.stream.JsonParser;
-import jakarta.json.stream.JsonParser.Event;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
-class JsonInputStream extends DataInputStream {
+/**
+ * Reads JSON from UTF-8 bytes directly into records, driven by their class infos.
+ *
+ * Field names are looked up in the field table of the record without creating strings. The values are parsed into the
+ * types of the fields and collected in the argument array of the constructor. Integral numbers are parsed from the
+ * bytes, other values that do not have the type of the field are converted from their text like before (for example a
+ * string with a number). Null values and missing fields leave the default value. The reader recurses for nested
+ * values, so the nesting depth is limited well below what overflows a small thread stack.
+ */
+class JsonInputStream {
 
+    private static final int MAX_DEPTH = 256;
+
+    private final byte[] input;
+    private final int limit;
     private final boolean tolerant;
-    private final JsonParser parser;
+    private int position;
+    private int depth;
+
+    JsonInputStream(byte[] input, boolean tolerant) {
+        this(input, input.length, tolerant);
+    }
 
-    JsonInputStream(Reader stream, boolean tolerant) {
+    JsonInputStream(byte[] input, int limit, boolean tolerant) {
+        this.input = input;
+        this.limit = limit;
         this.tolerant = tolerant;
-        this.parser = Json.createParser(stream);
-    }
-
-    @Override
-    public void close() throws IOException {
-        parser.close();
-    }
-
-    @Override
-    Object readObject(ClassInfo classInfo) throws Exception {
-        stack.push(new Scope(classInfo));
-        while (parser.hasNext()) {
-            Scope scope = stack.peek();
-            Event event = parser.next();
-            switch (event) {
-                case Event.START_OBJECT:
-                    if (scope.fieldInfo != null) {
-                        if (scope.fieldInfo.type() instanceof RecordType recordType) {
-                            scope = stack.push(new Scope(recordType.classInfo()));
-                        } else if (scope.fieldInfo.type() instanceof ListType listType) {
-                            if (listType.elementType() instanceof RecordType recordType) {
-                                scope = stack.push(new Scope(recordType.classInfo()));
-                            }
-                        }
+    }
+
+    Object readObject(ClassInfo classInfo) {
+        skipWhitespace();
+        Object instance = readRecord(classInfo);
+        skipWhitespace();
+        if (position < limit) {
+            throw createException("Unexpected data");
+        }
+        return instance;
+    }
+
+    private Object readRecord(ClassInfo classInfo) {
+        FieldTable table = classInfo.fieldTable().access();
+        Object[] args = table.createArgs();
+        expect('{');
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                int index = readFieldIndex(classInfo, table);
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                if (index < 0) {
+                    skipValue();
+                } else {
+                    Object value = readValue(table.field(index).type());
+                    if (value != null) {
+                        args[index] = value;
                     }
-                    scope.level++;
+                }
+                if (!readSeparator('}')) {
                     break;
-                case Event.END_OBJECT:
-                    scope.level--;
-                    if (scope.level == 0 && stack.size() > 1) {
-                        Object instance = stack.pop().createInstance();
-                        stack.peek().addValue(instance);
+                }
+            }
+        }
+        depth--;
+        return classInfo.constructor().apply(args);
+    }
+
+    private int readFieldIndex(ClassInfo classInfo, FieldTable table) {
+        expect('"');
+        int start = position;
+        while (position < limit && input[position] != '"' && input[position] != '\\') {
+            position++;
+        }
+        int index;
+        String name;
+        if (peek() == '"') {
+            index = table.find(input, start, position - start);
+            position++;
+            name = index < 0 ? new String(input, start, position - start - 1, UTF_8) : null;
+        } else {
+            position = start;
+            name = readStringContent();
+            byte[] bytes = name.getBytes(UTF_8);
+            index = table.find(bytes, 0, bytes.length);
+        }
+        if (index < 0 && !tolerant) {
+            throw new DatabinderException("Unknown field for " + classInfo.clazz() + ": " + name);
+        }
+        return index;
+    }
+
+    private Object readValue(AnyType type) {
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        return switch (type) {
+            case PrimitiveType primitiveType -> readScalar(primitiveType.boxedClass(), primitiveType.parseMethod());
+            case SimpleType simpleType -> readScalar(simpleType.clazz(), simpleType.parseMethod());
+            case RecordType recordType -> readRecord(recordType.classInfo());
+            case ListType listType -> readList(listType.elementType());
+            case MapType mapType -> readMap(mapType.elementType());
+        };
+    }
+
+    private List<Object> readList(ElementType elementType) {
+        List<Object> list = new ArrayList<>();
+        expect('[');
+        enter();
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+        } else {
+            do {
+                list.add(readValue(elementType));
+            } while (readSeparator(']'));
+        }
+        depth--;
+        return list;
+    }
+
+    private Map<String, Object> readMap(ElementType elementType) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        expect('{');
+        enter();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            do {
+                expect('"');
+                String key = readStringContent();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                map.put(key, readValue(elementType));
+            } while (readSeparator('}'));
+        }
+        depth--;
+        return map;
+    }
+
+    private Object readScalar(Class<?> clazz, Function<String, Object> parseMethod) {
+        byte b = peek();
+        if (b == '"') {
+            position++;
+            String string = readStringContent();
+            return clazz == String.class ? string : parseMethod.apply(string);
+        }
+        if (b == 't' || b == 'f') {
+            Boolean booleanValue = b == 't';
+            expectLiteral(booleanValue ? "true" : "false");
+            return clazz == Boolean.class ? booleanValue : parseMethod.apply(booleanValue.toString());
+        }
+        int start = position;
+        boolean negative = b == '-';
+        if (negative) {
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (position < limit && input[position] >= '0' && input[position] <= '9') {
+            value = value * 10 + (input[position++] - '0');
+            digits++;
+        }
+        while (position < limit && isNumberPart(input[position])) {
+            position++;
+            digits = Integer.MAX_VALUE; // not integral
+        }
+        if (position == start || (negative && position == start + 1)) {
+            throw createException("Unexpected character");
+        }
+        if (digits <= 18) {
+            value = negative ? -value : value;
+            if (clazz == Integer.class && value == (int) value) {
+                return (int) value;
+            } else if (clazz == Long.class) {
+                return value;
+            } else if (clazz == Short.class && value == (short) value) {
+                return (short) value;
+            } else if (clazz == Byte.class && value == (byte) value) {
+                return (byte) value;
+            }
+        }
+        String string = new String(input, start, position - start, ISO_8859_1);
+        return clazz == String.class ? new BigDecimal(string).toString() : parseMethod.apply(string);
+    }
+
+    private static boolean isNumberPart(byte b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+    }
+
+    /**
+     * Reads the rest of a string after the opening quote, creating the string directly from the bytes if possible.
+     */
+    private String readStringContent() {
+        int start = position;
+        boolean ascii = true;
+        while (position < limit) {
+            byte b = input[position];
+            if (b == '"') {
+                String string = new String(input, start, position - start, ascii ? ISO_8859_1 : UTF_8);
+                position++;
+                return string;
+            } else if (b == '\\') {
+                break;
+            } else if (b >= 0 && b < 0x20) {
+                throw createException("Unescaped control character");
+            } else if (b < 0) {
+                ascii = false;
+            }
+            position++;
+        }
+        StringBuilder builder = new StringBuilder(new String(input, start, position - start, UTF_8));
+        while (true) {
+            int chunk = position;
+            while (position < limit && input[position] != '"' && input[position] != '\\') {
+                if (input[position] >= 0 && input[position] < 0x20) {
+                    throw createException("Unescaped control character");
+                }
+                position++;
+            }
+            builder.append(new String(input, chunk, position - chunk, UTF_8));
+            if (position >= limit) {
+                throw createException("Unterminated string");
+            }
+            if (input[position++] == '"') {
+                return builder.toString();
+            }
+            byte escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append((char) escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > limit) {
+                        throw createException("Invalid escape sequence");
                     }
-                    break;
-                case Event.START_ARRAY:
-                    scope.startList();
-                    break;
-                case Event.END_ARRAY:
-                    scope.endList();
-                    break;
-                case Event.KEY_NAME:
-                    scope.startField(parser.getString(), tolerant);
-                    break;
-                case Event.VALUE_STRING:
-                    scope.addValue(parser.getString());
-                    break;
-                case Event.VALUE_NUMBER:
-                    scope.addValue(parser.getBigDecimal());
-                    break;
-                case Event.VALUE_TRUE:
-                    scope.addValue(true);
-                    break;
-                case Event.VALUE_FALSE:
-                    scope.addValue(false);
-                    break;
-                case Event.VALUE_NULL:
-                    break;
+                    int codeUnit = 0;
+                    for (int index = 0; index < 4; index++) {
+                        int digit = Character.digit(input[position++], 16);
+                        if (digit < 0) {
+                            throw createException("Invalid escape sequence");
+                        }
+                        codeUnit = codeUnit * 16 + digit;
+                    }
+                    builder.append((char) codeUnit);
+                }
+                default -> throw createException("Invalid escape sequence");
+            }
+        }
+    }
+
+    private void skipValue() {
+        byte b = peek();
+        switch (b) {
+            case '{', '[' -> {
+                position++;
+                enter();
+                byte end = (byte) (b == '{' ? '}' : ']');
+                skipWhitespace();
+                if (peek() == end) {
+                    position++;
+                } else {
+                    do {
+                        if (b == '{') {
+                            expect('"');
+                            readStringContent();
+                            skipWhitespace();
+                            expect(':');
+                            skipWhitespace();
+                        }
+                        skipValue();
+                    } while (readSeparator((char) end));
+                }
+                depth--;
+            }
+            case '"' -> {
+                position++;
+                readStringContent();
+            }
+            case 't' -> expectLiteral("true");
+            case 'f' -> expectLiteral("false");
+            case 'n' -> expectLiteral("null");
+            default -> readScalar(BigDecimal.class, BigDecimal::new);
+        }
+    }
+
+    /**
+     * Skips the comma between two elements and returns true, or skips the given end and returns false.
+     */
+    private boolean readSeparator(char end) {
+        skipWhitespace();
+        byte b = next();
+        if (b == ',') {
+            skipWhitespace();
+            return true;
+        } else if (b == end) {
+            return false;
+        }
+        position--;
+        throw createException("Expected ',' or '" + end + "'");
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw createException("Nesting too deep");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < limit) {
+            byte b = input[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
             }
+            position++;
         }
-        return stack.peek().createInstance();
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw createException("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int index = 0; index < literal.length(); index++) {
+            if (position >= limit || input[position] != literal.charAt(index)) {
+                throw createException("Expected '" + literal + "'");
+            }
+            position++;
+        }
+    }
+
+    private byte peek() {
+        if (position >= limit) {
+            throw createException("Unexpected end of input");
+        }
+        return input[position];
+    }
+
+    private byte next() {
+        byte b = peek();
+        position++;
+        return b;
+    }
+
+    private DatabinderException createException(String message) {
+        return new DatabinderException("Invalid JSON at offset " + position + ": " + message);
     }
 }
@@ -1,97 +1,325 @@
 package com.github.phoswald.rstm.databind;
 
-import static jakarta.json.stream.JsonGenerator.PRETTY_PRINTING;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
-import javax.xml.stream.XMLStreamException;
+/**
+ * Writes JSON as UTF-8 directly into a byte buffer, which is flushed to the stream when it is full, or grown if there
+ * is no stream. Pretty printing puts every value on its own line, indented by four spaces per level.
+ */
+class JsonOutputStream implements AutoCloseable {
 
-import jakarta.json.Json;
-import jakarta.json.stream.JsonGenerator;
-
-class JsonOutputStream extends DataOutputStream {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_SIZE = 512; // without stream, allocating more is slower than growing
+    private static final int MAX_RETAINED_SIZE = 65536; // when reused, larger buffers are dropped
+    private static final int INDENT = 4;
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
 
+    private final OutputStream stream;
     private final boolean pretty;
-    private final Writer stream;
-    private final JsonGenerator generator;
-    private final Stack<Scope> stack = new Stack<>();
+    private byte[] buffer;
+    private int position;
+    private int level;
 
-    JsonOutputStream(Writer stream, boolean pretty) throws XMLStreamException {
-        Map<String, String> config = pretty ? Map.of(PRETTY_PRINTING, "true") : Map.of();
-        this.pretty = pretty;
+    /**
+     * @param stream the stream to which the buffer is written, or null to collect the output in the buffer
+     */
+    JsonOutputStream(OutputStream stream, boolean pretty) {
         this.stream = stream;
-        this.generator = Json.createGeneratorFactory(config).createGenerator(stream);
-        stack.push(Scope.DOCUMENT);
+        this.pretty = pretty;
+        this.buffer = new byte[stream == null ? INITIAL_SIZE : BUFFER_SIZE];
     }
 
     @Override
     public void close() throws IOException {
-        generator.flush();
-        if (pretty) {
-            stream.write('\n');
+        if (stream != null) {
+            stream.write(buffer, 0, position);
+            position = 0;
+            stream.close();
         }
-        generator.close();
     }
 
     @Override
-    void writeStartObject(String name) {
-        if (stack.peek() == Scope.OBJECT) {
-            generator.writeKey(name);
+    public String toString() {
+        return new String(buffer, 0, position, UTF_8);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Discards the output, so the buffer can be reused for the next instance.
+     */
+    void reset() {
+        position = 0;
+        level = 0;
+        if (buffer.length > MAX_RETAINED_SIZE) {
+            buffer = new byte[INITIAL_SIZE];
         }
-        generator.writeStartObject();
-        stack.push(Scope.OBJECT);
     }
 
-    @Override
-    void writeEndObject(String name) {
-        stack.pop();
-        generator.writeEnd();
+    void writeObject(ClassInfo classInfo, Object instance) throws IOException {
+        writeRecord(classInfo, instance);
+        if (pretty) {
+            writeByte('\n');
+        }
     }
 
-    @Override
-    void writeStartList(String name) {
-        if (stack.peek() == Scope.OBJECT) {
-            generator.writeKey(name);
+    /**
+     * Encodes the given name as a quoted and escaped JSON string, for the field names that are written repeatedly.
+     */
+    static byte[] encodeName(String name) {
+        JsonOutputStream encoder = new JsonOutputStream(null, false);
+        try {
+            encoder.writeString(name);
+        } catch (IOException e) {
+            throw new DatabinderException(e); // not possible without stream
         }
-        generator.writeStartArray();
-        stack.push(Scope.LIST);
+        return encoder.toByteArray();
     }
 
-    @Override
-    void writeEndList(String name) {
-        stack.pop();
-        generator.writeEnd();
+    private void writeRecord(ClassInfo classInfo, Object instance) throws IOException {
+        writeByte('{');
+        level++;
+        boolean first = true;
+        for (FieldInfo fieldInfo : classInfo.fields().access().values()) {
+            Object fieldValue = fieldInfo.getter().apply(instance);
+            if (fieldValue != null) {
+                writeSeparator(first);
+                first = false;
+                writeBytes(fieldInfo.jsonName());
+                writeColon();
+                switch (fieldInfo.type()) {
+                    case PrimitiveType _ -> writeScalar(fieldValue);
+                    case SimpleType simpleType -> writeScalar(simpleType.format(fieldValue));
+                    case RecordType recordType -> writeRecord(recordType.classInfo(), fieldValue);
+                    case ListType listType -> writeList(listType.elementType(), (List<?>) fieldValue);
+                    case MapType mapType -> writeMap(mapType.elementType(), (Map<?, ?>) fieldValue);
+                }
+            }
+        }
+        writeEnd('}');
     }
 
-    @Override
-    void writeStartMap(String name) {
-        writeStartObject(name);
+    private void writeList(ElementType elementType, List<?> listInstance) throws IOException {
+        writeByte('[');
+        level++;
+        boolean first = true;
+        for (Object listElement : listInstance) {
+            writeSeparator(first);
+            first = false;
+            writeElement(elementType, listElement);
+        }
+        writeEnd(']');
     }
 
-    @Override
-    void writeEndMap(String name) {
-        writeEndObject(name);
+    private void writeMap(ElementType elementType, Map<?, ?> mapInstance) throws IOException {
+        writeByte('{');
+        level++;
+        boolean first = true;
+        for (Map.Entry<?, ?> mapEntry : mapInstance.entrySet()) {
+            writeSeparator(first);
+            first = false;
+            writeString(mapEntry.getKey().toString());
+            writeColon();
+            writeElement(elementType, mapEntry.getValue());
+        }
+        writeEnd('}');
     }
 
-    @Override
-    void writeValue(String name, Object value) {
-        if (stack.peek() == Scope.OBJECT) {
-            generator.writeKey(name);
-        }
-        if (value instanceof Number) {
-            generator.write(new BigDecimal(value.toString()));
-        } else if (value instanceof Boolean booleanValue) {
-            generator.write(booleanValue.booleanValue());
+    private void writeElement(ElementType elementType, Object element) throws IOException {
+        if (element == null) {
+            writeBytes(NULL);
+            return;
+        }
+        switch (elementType) {
+            case SimpleType simpleType -> writeScalar(simpleType.format(element));
+            case RecordType recordType -> writeRecord(recordType.classInfo(), element);
+        }
+    }
+
+    private void writeScalar(Object value) throws IOException {
+        switch (value) {
+            case String stringValue -> writeString(stringValue);
+            case Integer intValue -> writeLong(intValue);
+            case Long longValue -> writeLong(longValue);
+            case Short shortValue -> writeLong(shortValue);
+            case Byte byteValue -> writeLong(byteValue);
+            case Double doubleValue -> writeDecimal(doubleValue, doubleValue.toString());
+            case Float floatValue -> writeDecimal(floatValue, floatValue.toString());
+            case Boolean booleanValue -> writeBytes(booleanValue ? TRUE : FALSE);
+            case Number numberValue -> writeAscii(new BigDecimal(numberValue.toString()).toString());
+            default -> writeString(value.toString());
+        }
+    }
+
+    private void writeSeparator(boolean first) throws IOException {
+        ensure(1 + 1 + level * INDENT);
+        if (!first) {
+            buffer[position++] = ',';
+        }
+        if (pretty) {
+            writeNewLine();
+        }
+    }
+
+    private void writeColon() throws IOException {
+        ensure(2);
+        buffer[position++] = ':';
+        if (pretty) {
+            buffer[position++] = ' ';
+        }
+    }
+
+    private void writeEnd(char c) throws IOException {
+        level--;
+        ensure(1 + 1 + level * INDENT);
+        if (pretty) {
+            writeNewLine();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeNewLine() {
+        buffer[position++] = '\n';
+        int end = position + level * INDENT;
+        Arrays.fill(buffer, position, end, (byte) ' ');
+        position = end;
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int index = end - 1; index >= position; index--) {
+            buffer[index] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Writes the shortest decimal representation, as produced by Double.toString(), but normalized like BigDecimal if
+     * it has an exponent.
+     */
+    private void writeDecimal(double value, String string) throws IOException {
+        if (Double.isFinite(value) && string.indexOf('E') < 0) {
+            writeAscii(string);
         } else {
-            generator.write(value.toString());
+            writeAscii(new BigDecimal(string).toString()); // also rejects NaN and infinity
         }
     }
 
-    enum Scope {
-        DOCUMENT, OBJECT, LIST
+    private void writeAscii(String string) throws IOException {
+        int length = string.length();
+        ensure(length);
+        for (int index = 0; index < length; index++) {
+            buffer[position++] = (byte) string.charAt(index);
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        int length = string.length();
+        ensure(length + 2);
+        buffer[position++] = '"';
+        for (int index = 0; index < length; index++) {
+            char c = string.charAt(index);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                if (position == buffer.length) {
+                    ensure(1);
+                }
+                buffer[position++] = (byte) c;
+            } else {
+                ensure(6);
+                if (c < 0x80) {
+                    writeEscaped(c);
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xc0 | c >> 6);
+                    buffer[position++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(string.charAt(index + 1))) {
+                    int codePoint = Character.toCodePoint(c, string.charAt(++index));
+                    buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?'; // like the UTF-8 encoder of a writer
+                } else {
+                    buffer[position++] = (byte) (0xe0 | c >> 12);
+                    buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+        }
+        ensure(1);
+        buffer[position++] = '"';
+    }
+
+    private void writeEscaped(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '"', '\\' -> buffer[position++] = (byte) c;
+            case '\b' -> buffer[position++] = 'b';
+            case '\f' -> buffer[position++] = 'f';
+            case '\n' -> buffer[position++] = 'n';
+            case '\r' -> buffer[position++] = 'r';
+            case '\t' -> buffer[position++] = 't';
+            default -> {
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xf];
+            }
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Makes room for the given number of bytes, by flushing the buffer to the stream or by growing it.
+     */
+    private void ensure(int length) throws IOException {
+        if (position + length <= buffer.length) {
+            return;
+        }
+        if (stream != null && position > 0) {
+            stream.write(buffer, 0, position);
+            position = 0;
+            if (length <= buffer.length) {
+                return;
+            }
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
     }
 }
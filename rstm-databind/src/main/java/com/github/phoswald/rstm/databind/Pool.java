@@ -0,0 +1,51 @@
+package com.github.phoswald.rstm.databind;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A small lock-free pool of reusable objects.
+ *
+ * Unlike a thread local, this also works with virtual threads, which are short-lived and would each get their own
+ * object. The search starts at a slot derived from the thread id to spread concurrent threads. If no object is
+ * available, a new one is created, and if all slots are taken, a released object is dropped.
+ */
+class Pool<T> {
+
+    private static final int SIZE = 16; // power of two
+
+    private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(SIZE);
+    private final Supplier<T> factory;
+
+    Pool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    T acquire() {
+        int start = start();
+        for (int index = 0; index < SIZE; index++) {
+            int slot = (start + index) & (SIZE - 1);
+            if (slots.getPlain(slot) != null) {
+                T object = slots.getAndSet(slot, null);
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+        return factory.get();
+    }
+
+    void release(T object) {
+        int start = start();
+        for (int index = 0; index < SIZE; index++) {
+            int slot = (start + index) & (SIZE - 1);
+            if (slots.getPlain(slot) == null && slots.compareAndSet(slot, null, object)) {
+                return;
+            }
+        }
+    }
+
+    private static int start() {
+        return (int) Thread.currentThread().threadId();
+    }
+}
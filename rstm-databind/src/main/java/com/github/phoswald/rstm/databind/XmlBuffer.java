@@ -0,0 +1,43 @@
+package com.github.phoswald.rstm.databind;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * A reusable target for XML output: a byte buffer with a UTF-8 writer on top, which is flushed instead of closed.
+ */
+class XmlBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 512;
+    private static final int MAX_RETAINED_SIZE = 65536; // when reused, larger buffers are dropped
+
+    private final Writer writer = new OutputStreamWriter(this, UTF_8) {
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    };
+
+    XmlBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    Writer writer() {
+        return writer;
+    }
+
+    /**
+     * Discards the output, so the buffer can be reused for the next instance.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+    }
+}
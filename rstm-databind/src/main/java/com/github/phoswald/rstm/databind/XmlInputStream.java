@@ -1,6 +1,8 @@
 package com.github.phoswald.rstm.databind;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 
 import javax.xml.stream.XMLInputFactory;
@@ -10,14 +12,25 @@ import javax.xml.stream.XMLStreamReader;
 
 class XmlInputStream extends DataInputStream {
 
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance(); // lookup is slow, creating is thread-safe
+
     private final boolean tolerant;
-    private final Reader stream;
+    private final Closeable stream;
     private final XMLStreamReader reader;
 
     XmlInputStream(Reader stream, boolean tolerant) throws XMLStreamException {
         this.tolerant = tolerant;
         this.stream = stream;
-        this.reader = XMLInputFactory.newInstance().createXMLStreamReader(stream);
+        this.reader = FACTORY.createXMLStreamReader(stream);
+    }
+
+    /**
+     * Reads bytes, which the parser decodes itself, in the encoding of the XML declaration (or UTF-8 by default).
+     */
+    XmlInputStream(InputStream stream, boolean tolerant) throws XMLStreamException {
+        this.tolerant = tolerant;
+        this.stream = stream;
+        this.reader = FACTORY.createXMLStreamReader(stream);
     }
 
     @Override
@@ -9,6 +9,8 @@ import javax.xml.stream.XMLStreamWriter;
 
 class XmlOutputStream extends DataOutputStream {
 
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance(); // lookup is slow, creating is thread-safe
+
     private final String indent = "    ";
     private final boolean pretty;
     private final Writer stream;
@@ -19,7 +21,7 @@ class XmlOutputStream extends DataOutputStream {
     XmlOutputStream(Writer stream, boolean pretty) throws XMLStreamException {
         this.pretty = pretty;
         this.stream = stream;
-        this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(stream /*, "UTF-8" */);
+        this.writer = FACTORY.createXMLStreamWriter(stream /*, "UTF-8" */);
         writeStartDocument(); // writer.writeStartDocument("UTF-8", "1.0") does not write standalone attribute!
         if (pretty) {
             writer.writeCharacters("\n");
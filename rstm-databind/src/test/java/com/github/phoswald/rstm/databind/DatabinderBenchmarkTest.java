@@ -0,0 +1,221 @@
+package com.github.phoswald.rstm.databind;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the average time per conversion of the sample records, after a warmup that lets the JIT compile the
+ * accessors (like a JMH average time benchmark with a single fork), and the throughput of concurrent conversions.
+ *
+ * Excluded from the regular build, run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class DatabinderBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 100_000;
+    private static final int ITERATIONS = 100_000;
+    private static final int TREE_DEPTH = 16;
+    private static final int THREADS = 8;
+
+    private static final Sample SAMPLE = Sample.builder()
+            .stringField("sample")
+            .integerField(42)
+            .longPField(42L)
+            .doublePField(42.0)
+            .booleanPField(true)
+            .charPField('A')
+            .instantField(Instant.ofEpochMilli(1730754686000L))
+            .enumField(SampleEnum.ONE)
+            .recordField(new SamplePair("sampleKey", "sampleVal"))
+            .stringListField(List.of("sample1", "sample2"))
+            .recordListField(List.of(new SamplePair("sampleKey1", "sampleVal1"), new SamplePair("sampleKey2", "sampleVal2")))
+            .build();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Databinder testee = new Databinder().pretty(false);
+
+    @Test
+    void toJson_sample() {
+        String json = testee.toJson(SAMPLE);
+        measure("toJson(Sample)", () -> testee.toJson(SAMPLE));
+        assertEquals(json, testee.toJson(SAMPLE));
+    }
+
+    @Test
+    void toJsonBytes_sample() {
+        measure("toJson(Sample, OutputStream)", () -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            testee.toJson(SAMPLE, buffer);
+            return buffer.toByteArray();
+        });
+        measure("toJsonBytes(Sample)", () -> testee.toJsonBytes(SAMPLE));
+        assertEquals(testee.toJson(SAMPLE), new String(testee.toJsonBytes(SAMPLE), UTF_8));
+    }
+
+    @Test
+    void toXmlBytes_sample() {
+        measure("toXml(Sample, OutputStream)", () -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            testee.toXml(SAMPLE, buffer);
+            return buffer.toByteArray();
+        });
+        measure("toXmlBytes(Sample)", () -> testee.toXmlBytes(SAMPLE));
+        assertEquals(testee.toXml(SAMPLE), new String(testee.toXmlBytes(SAMPLE), UTF_8));
+    }
+
+    @Test
+    void fromXmlBytes_sample() {
+        byte[] xml = testee.toXmlBytes(SAMPLE);
+        measure("fromXml(InputStream, Sample)", () -> testee.fromXml(new ByteArrayInputStream(xml), Sample.class));
+        measure("fromXml(byte[], Sample)", () -> testee.fromXml(xml, Sample.class));
+        assertEquals(SAMPLE, testee.fromXml(xml, Sample.class));
+    }
+
+    @Test
+    void fromJson_sample() {
+        String json = testee.toJson(SAMPLE);
+        measure("fromJson(Sample)", () -> testee.fromJson(json, Sample.class));
+        assertEquals(SAMPLE, testee.fromJson(json, Sample.class));
+    }
+
+    @Test
+    void toJson_sampleTree() {
+        SampleTree tree = createTree();
+        String json = testee.toJson(tree);
+        measure("toJson(SampleTree)", () -> testee.toJson(tree));
+        assertEquals(json, testee.toJson(tree));
+    }
+
+    @Test
+    void fromJson_sampleTree() {
+        SampleTree tree = createTree();
+        String json = testee.toJson(tree);
+        measure("fromJson(SampleTree)", () -> testee.fromJson(json, SampleTree.class));
+        assertEquals(tree, testee.fromJson(json, SampleTree.class));
+    }
+
+    @Test
+    void extractFields_createInstance_sample() {
+        measure("extractFields(Sample)", () -> testee.extractFields(Sample.class, SAMPLE));
+        Map<String, Object> map = testee.extractFields(Sample.class, SAMPLE);
+        measure("createInstance(Sample)", () -> testee.createInstance(Sample.class, map));
+        assertEquals(SAMPLE, testee.createInstance(Sample.class, map));
+    }
+
+    @Test
+    void accessors_sample() throws Exception {
+        RecordComponent[] components = Sample.class.getRecordComponents();
+        Method[] methods = Stream.of(components).map(RecordComponent::getAccessor).toArray(Method[]::new);
+        Constructor<Sample> constructor = Sample.class.getDeclaredConstructor(Stream.of(components).map(RecordComponent::getType).toArray(Class<?>[]::new));
+        ClassInfo classInfo = testee.getClassInfo(Sample.class);
+        FieldInfo[] fields = classInfo.fields().access().values().toArray(FieldInfo[]::new);
+        Object[] args = new Object[components.length];
+        measure("getters(Sample) with reflection", () -> invokeReflective(() -> {
+            for (int index = 0; index < methods.length; index++) {
+                methods[index].setAccessible(true);
+                args[index] = methods[index].invoke(SAMPLE);
+            }
+            return args;
+        }));
+        measure("getters(Sample)", () -> {
+            for (int index = 0; index < fields.length; index++) {
+                args[index] = fields[index].getter().apply(SAMPLE);
+            }
+            return args;
+        });
+        measure("constructor(Sample) with reflection", () -> invokeReflective(() -> {
+            constructor.setAccessible(true);
+            return constructor.newInstance(args);
+        }));
+        measure("constructor(Sample)", () -> classInfo.constructor().apply(args));
+        assertEquals(SAMPLE, classInfo.constructor().apply(args));
+    }
+
+    @Test
+    void extractFields_concurrent() throws Exception {
+        SampleTree tree = createTree();
+        Supplier<Object> operation = () -> testee.extractFields(SampleTree.class, tree);
+        measureConcurrent(1, operation);
+        long single = measureConcurrent(1, operation);
+        measureConcurrent(THREADS, operation);
+        long concurrent = measureConcurrent(THREADS, operation);
+        logger.info("extractFields(SampleTree): {} ops/s with 1 thread, {} ops/s with {} threads on {} processors",
+                single, concurrent, THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    private void measure(String name, Supplier<Object> operation) {
+        Object sink = null;
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            sink = operation.get();
+        }
+        long start = System.nanoTime();
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            sink = operation.get();
+        }
+        long nanos = System.nanoTime() - start;
+        logger.info("{}: {} ns/op ({})", name, nanos / ITERATIONS, sink.getClass().getSimpleName());
+    }
+
+    private static Object invokeReflective(ReflectiveSupplier operation) {
+        try {
+            return operation.get();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long measureConcurrent(int threads, Supplier<Object> operation) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                        operation.get();
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return threads * ITERATIONS * 1_000_000_000L / (System.nanoTime() - startNanos);
+        }
+    }
+
+    private interface ReflectiveSupplier {
+        Object get() throws ReflectiveOperationException;
+    }
+
+    private static SampleTree createTree() {
+        SampleTree tree = null;
+        for (int level = 0; level < TREE_DEPTH; level++) {
+            tree = new SampleTree("level" + level, tree);
+        }
+        return tree;
+    }
+}
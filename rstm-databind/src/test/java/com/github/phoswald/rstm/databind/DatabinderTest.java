@@ -13,12 +13,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 class DatabinderTest {
@@ -352,6 +357,35 @@ class DatabinderTest {
         assertSame(instance.nested(), map.get("nested"));
     }
 
+    @Test
+    void extractFields_concurrentFirstUse_success() throws Exception {
+        Databinder testee = new Databinder();
+        SampleTree instance = new SampleTree("A", new SampleTree("B", null));
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    testee.extractFields(Sample.class, INSTANCE);
+                    return testee.extractFields(SampleTree.class, instance);
+                }));
+            }
+            start.countDown();
+            for (Future<Map<String, Object>> future : futures) {
+                assertSame(instance.nested(), future.get().get("nested"));
+            }
+        }
+    }
+
+    @Test
+    void createMetadata_unsupportedNested_notCached() {
+        Exception e = assertThrows(DatabinderException.class, () -> testee.createMetadata(SampleUnsupported.class));
+        assertEquals("Unsupported type: class java.lang.Object", e.getMessage());
+        e = assertThrows(DatabinderException.class, () -> testee.createMetadata(SampleUnsupported.class));
+        assertEquals("Unsupported type: class java.lang.Object", e.getMessage());
+    }
+
     @Test
     void extractFields_notRecord_exception() {
         Exception e = assertThrows(DatabinderException.class, () -> testee.extractFields(SampleClass.class, new SampleClass()));
@@ -455,6 +489,13 @@ class DatabinderTest {
         assertEquals(XML, writer.toString());
     }
 
+    @Test
+    void toXmlBytes_valid_success() {
+        byte[] xml = testee.toXmlBytes(INSTANCE);
+        assertEquals(XML, new String(xml, UTF_8));
+        assertEquals(XML, new String(testee.toXmlBytes(INSTANCE), UTF_8));
+    }
+
     @Test
     void toXml_validNotPretty_success() {
         String xml = testee.pretty(false).toXml(INSTANCE);
@@ -493,12 +534,82 @@ class DatabinderTest {
         assertEquals(JSON, writer.toString());
     }
 
+    @Test
+    void toJson_largeWriter_writtenInChunks() {
+        Sample instance = Sample.builder()
+                .stringListField(IntStream.range(0, 2000).mapToObj(index -> "\u00e4\u20ac\ud83d\ude00" + index).toList())
+                .build();
+        List<Integer> writes = new ArrayList<>();
+        StringWriter writer = new StringWriter() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                writes.add(length);
+                super.write(chars, offset, length);
+            }
+        };
+        testee.toJson(instance, writer);
+        assertEquals(testee.toJson(instance), writer.toString());
+        assertTrue(writes.size() > 2, writes.toString());
+    }
+
     @Test
     void toJson_validNotPretty_success() {
         String json = testee.pretty(false).toJson(INSTANCE);
         assertEquals(JSON.replace("\n", "").replace(" ", ""), json);
     }
 
+    @Test
+    void toJson_specialCharacters_escaped() {
+        String json = testee.pretty(false).toJson(new SamplePair("\"quoted\" \\ \n\t\u0001/", "\u00e4\u20ac\ud83d\ude00"));
+        assertEquals("{\"key\":\"\\\"quoted\\\" \\\\ \\n\\t\\u0001/\",\"val\":\"\u00e4\u20ac\ud83d\ude00\"}", json);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        testee.pretty(false).toJson(new SamplePair("key", "\u00e4\u20ac\ud83d\ude00"), stream);
+        assertEquals(20 + 2 + 3 + 4 + 2, stream.size()); // two, three and four bytes per character
+    }
+
+    @Test
+    void toJson_numbers_formatted() {
+        Sample instance = Sample.builder()
+                .integerField(Integer.MIN_VALUE)
+                .longField(Long.MIN_VALUE)
+                .longPField(Long.MAX_VALUE)
+                .floatPField(0.1f)
+                .doublePField(1e10)
+                .doubleField(-1e-7)
+                .build();
+        String json = testee.pretty(false).toJson(instance);
+        assertTrue(json.contains("\"integerField\":-2147483648,"), json);
+        assertTrue(json.contains("\"longField\":-9223372036854775808,"), json);
+        assertTrue(json.contains("\"longPField\":9223372036854775807,"), json);
+        assertTrue(json.contains("\"floatPField\":0.1,"), json);
+        assertTrue(json.contains("\"doublePField\":1.0E+10,"), json);
+        assertTrue(json.contains("\"doubleField\":-1.0E-7,"), json);
+    }
+
+    @Test
+    void toJson_largeStream_success() {
+        Sample instance = Sample.builder()
+                .stringListField(IntStream.range(0, 5000).mapToObj(index -> "sample" + index).toList())
+                .build();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        testee.toJson(instance, stream);
+        assertEquals(testee.toJson(instance), stream.toString(UTF_8));
+    }
+
+    @Test
+    void toJsonBytes_valid_success() {
+        byte[] json = testee.toJsonBytes(INSTANCE);
+        assertEquals(JSON, new String(json, UTF_8));
+        assertEquals(JSON, new String(testee.toJsonBytes(INSTANCE), UTF_8));
+    }
+
+    @Test
+    void toJson_afterException_bufferReused() {
+        Sample instance = Sample.builder().stringField("before").doubleField(Double.NaN).build();
+        assertThrows(DatabinderException.class, () -> testee.toJson(instance));
+        assertEquals(JSON, testee.toJson(INSTANCE));
+    }
+
     @Test
     void fromXml_valid_success() {
         Sample instance = testee.fromXml(XML, Sample.class);
@@ -518,6 +629,12 @@ class DatabinderTest {
         assertEquals(INSTANCE, instance);
     }
 
+    @Test
+    void fromXml_validBytes_success() {
+        Sample instance = testee.fromXml(XML.getBytes(UTF_8), Sample.class);
+        assertEquals(INSTANCE, instance);
+    }
+
     @Test
     void fromXml_validReader_success() {
         Sample instance = testee.fromXml(new StringReader(XML), Sample.class);
@@ -550,7 +667,6 @@ class DatabinderTest {
         assertEquals(INSTANCE_EMPTY, instance);
     }
 
-    @Disabled // TODO (JSON): parse map!
     @Test
     void fromJson_validMap_success() {
         SampleMap instance = testee.fromJson(JSON_MAP, SampleMap.class);
@@ -569,6 +685,69 @@ class DatabinderTest {
         assertEquals(INSTANCE, instance);
     }
 
+    @Test
+    void fromJson_escapedStrings_decoded() {
+        SamplePair instance = testee.fromJson("""
+                { "key": "\\"quoted\\" \\\\ \\/ \\n\\t\\u00e4\\ud83d\\ude00", "val": "\u00e4\u20ac\ud83d\ude00" }
+                """, SamplePair.class);
+        assertEquals(new SamplePair("\"quoted\" \\ / \n\t\u00e4\ud83d\ude00", "\u00e4\u20ac\ud83d\ude00"), instance);
+    }
+
+    @Test
+    void fromJson_valuesOfOtherTypes_converted() {
+        Sample instance = testee.fromJson("""
+                {
+                    "stringField": 12.50,
+                    "integerField": -7,
+                    "doubleField": 1e2,
+                    "intPField": "42",
+                    "longPField": 9223372036854775807,
+                    "bytePField": 127,
+                    "booleanPField": true
+                }
+                """, Sample.class);
+        assertEquals("12.50", instance.stringField());
+        assertEquals(-7, instance.integerField());
+        assertEquals(100.0, instance.doubleField());
+        assertEquals(42, instance.intPField());
+        assertEquals(Long.MAX_VALUE, instance.longPField());
+        assertEquals(127, instance.bytePField());
+        assertTrue(instance.booleanPField());
+    }
+
+    @Test
+    void fromJson_nullValues_default() {
+        Sample instance = testee.fromJson("""
+                { "stringField": null, "intPField": null, "stringListField": null }
+                """, Sample.class);
+        assertEquals(INSTANCE_EMPTY, instance);
+    }
+
+    @Test
+    void fromJson_invalid_exception() {
+        Exception e = assertThrows(DatabinderException.class, () -> testee.fromJson("{ \"stringField\": \"sample\" ", Sample.class));
+        assertEquals("Invalid JSON at offset 26: Unexpected end of input", e.getMessage());
+        e = assertThrows(DatabinderException.class, () -> testee.fromJson("{ } { }", Sample.class));
+        assertEquals("Invalid JSON at offset 4: Unexpected data", e.getMessage());
+        e = assertThrows(DatabinderException.class, () -> testee.fromJson("{ \"stringField\": [ ] }", Sample.class));
+        assertEquals("Invalid JSON at offset 17: Unexpected character", e.getMessage());
+        assertThrows(DatabinderException.class, () -> testee.fromJson("{ \"bytePField\": 300 }", Sample.class));
+    }
+
+    @Test
+    void fromJson_deeplyNested_exception() {
+        String json = "{ \"unknown\": " + "[".repeat(100_000) + "]".repeat(100_000) + " }";
+        Exception e = assertThrows(DatabinderException.class, () -> testee.fromJson(json, Sample.class));
+        assertEquals("Invalid JSON at offset 269: Nesting too deep", e.getMessage());
+
+        String tree = "{ \"nested\": ".repeat(257) + "}".repeat(257);
+        e = assertThrows(DatabinderException.class, () -> testee.fromJson(tree, SampleTree.class));
+        assertTrue(e.getMessage().endsWith("Nesting too deep"), e.getMessage());
+
+        String allowed = "{ \"nested\": ".repeat(255) + "{ \"value\": \"leaf\" }" + "}".repeat(255);
+        assertNotNull(testee.fromJson(allowed, SampleTree.class));
+    }
+
     @Test
     void fromJson_unknownFields_skipped() {
         Sample instance = testee.fromJson(JSON_UNKNOWN, Sample.class);
@@ -581,4 +760,8 @@ class DatabinderTest {
         Exception e = assertThrows(DatabinderException.class, () -> testee.tolerant(false).fromJson(JSON_UNKNOWN, Sample.class));
         assertEquals("Unknown field for class com.github.phoswald.rstm.databind.Sample: unknown", e.getMessage());
     }
+
+    private record SampleUnsupported(String name, SampleInvalid nested) { }
+
+    private record SampleInvalid(Object value) { }
 }
@@ -0,0 +1,20 @@
+package com.github.phoswald.rstm.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the body of a response directly to the connection, using chunked transfer encoding if the length is unknown.
+ */
+@FunctionalInterface
+public interface HttpBodyWriter {
+
+    void write(OutputStream output) throws IOException;
+
+    /**
+     * Returns the number of bytes that will be written, or -1 if unknown.
+     */
+    default long length() {
+        return -1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.phoswald.rstm.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Creates the entity tags of the ETag header, which are matched with {@link HttpRequest#matchesEtag(String)}.
+ */
+public final class HttpEtags {
+
+    private HttpEtags() { }
+
+    /**
+     * Creates a strong entity tag from a SHA-256 digest of the given bytes, for content that is computed once and cached.
+     */
+    public static String createStrong(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a weak entity tag from the length and two hardware accelerated checksums of the given bytes.
+     */
+    public static String createWeak(byte[] bytes) {
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(bytes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return "W/\"" + Integer.toHexString(bytes.length) + "-"
+                + Long.toHexString(crc32c.getValue() << 32 | crc32.getValue()) + "\"";
+    }
+
+    /**
+     * Creates a weak entity tag from the given version, which is hashed if it contains invalid characters.
+     */
+    public static String createWeak(String version) {
+        if (version == null) {
+            return null;
+        }
+        for (int index = 0; index < version.length(); index++) {
+            char c = version.charAt(index);
+            if (c <= 0x20 || c == '"' || c >= 0x7f) {
+                return createWeak(version.getBytes(UTF_8));
+            }
+        }
+        return "W/\"" + version + "\"";
+    }
+}
@@ -29,7 +29,7 @@ public record HttpHeaderValue(String valueOnly, Map<String, String> parameters)
                 if (posSeparator == -1) {
                     posSeparator = value.length();
                 }
-                if (pos + 1 < posAssignment && posAssignment + 1 < posSeparator) {
+                if (pos < posAssignment && posAssignment + 1 < posSeparator && !value.substring(pos, posAssignment).isBlank()) {
                     parameters.put(
                             value.substring(pos, posAssignment).trim(),
                             value.substring(posAssignment + 1, posSeparator).trim());
@@ -0,0 +1,135 @@
+package com.github.phoswald.rstm.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.URLDecoder;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A read-only map of parameters, which is decoded from a query string, a form body or a cookie header only when it is
+ * accessed for the first time.
+ */
+public final class HttpParams extends AbstractMap<String, String> {
+
+    private final Supplier<String> source;
+    private final boolean cookies;
+    private volatile Map<String, String> decoded;
+
+    private HttpParams(Supplier<String> source, boolean cookies) {
+        this.source = source;
+        this.cookies = cookies;
+    }
+
+    /**
+     * Returns the parameters of a raw query string ("a=1&amp;b=2"), the values are URL decoded.
+     */
+    public static Map<String, String> ofQuery(String queryString) {
+        return queryString == null || queryString.isEmpty() ? Map.of() : new HttpParams(() -> queryString, false);
+    }
+
+    /**
+     * Returns the parameters of a form body, which is encoded like a query string and obtained when first accessed.
+     */
+    public static Map<String, String> ofForm(Supplier<String> body) {
+        return new HttpParams(body, false);
+    }
+
+    /**
+     * Returns the cookies of a Cookie header ("a=1; b=2"), the values are not decoded.
+     */
+    public static Map<String, String> ofCookies(String cookieHeader) {
+        return cookieHeader == null || cookieHeader.isEmpty() ? Map.of() : new HttpParams(() -> cookieHeader, true);
+    }
+
+    /**
+     * Returns the value of the given cookie of a Cookie header, without decoding the other cookies.
+     */
+    public static String findCookie(String cookieHeader, String name) {
+        if (cookieHeader != null) {
+            int pos = 0;
+            while (pos < cookieHeader.length()) {
+                int end = cookieHeader.indexOf("; ", pos);
+                if (end == -1) {
+                    end = cookieHeader.length();
+                }
+                int separator = cookieHeader.indexOf('=', pos);
+                if (separator != -1 && separator < end && matchesTrimmed(cookieHeader, pos, separator, name)) {
+                    return cookieHeader.substring(separator + 1, end).trim();
+                }
+                pos = end + 2;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesTrimmed(String string, int start, int end, String name) {
+        while (start < end && string.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && string.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start == name.length() && string.regionMatches(start, name, 0, name.length());
+    }
+
+    @Override
+    public String get(Object key) {
+        return decoded().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return decoded().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return decoded().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return decoded().entrySet();
+    }
+
+    private Map<String, String> decoded() {
+        Map<String, String> map = decoded;
+        if (map == null) {
+            map = new HashMap<>();
+            String string = source.get();
+            if (string != null) {
+                if (cookies) {
+                    decodeCookies(map, string);
+                } else {
+                    decodeQueryString(map, string);
+                }
+            }
+            decoded = map = Collections.unmodifiableMap(map);
+        }
+        return map;
+    }
+
+    private static void decodeQueryString(Map<String, String> params, String queryString) {
+        for (String queryParam : queryString.split("&")) {
+            int index = queryParam.indexOf("=");
+            if (index > 0) {
+                params.put(queryParam.substring(0, index), URLDecoder.decode(queryParam.substring(index + 1), UTF_8));
+            }
+        }
+    }
+
+    private static void decodeCookies(Map<String, String> params, String cookieHeader) {
+        for (String cookiePair : cookieHeader.split("; ")) {
+            int separatorOffset = cookiePair.indexOf('=');
+            if (separatorOffset != -1) {
+                params.putIfAbsent(cookiePair.substring(0, separatorOffset).trim(),
+                        cookiePair.substring(separatorOffset + 1).trim());
+            }
+        }
+    }
+}
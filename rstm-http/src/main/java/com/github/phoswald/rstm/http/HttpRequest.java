@@ -1,5 +1,6 @@
 package com.github.phoswald.rstm.http;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
@@ -7,6 +8,12 @@ import java.util.Optional;
 import com.github.phoswald.record.builder.RecordBuilder;
 import com.github.phoswald.rstm.security.Principal;
 
+/**
+ * A request as seen by the filters and the handlers.
+ *
+ * The body is opened only when it is accessed. A request with a body in memory is built with
+ * {@code requestBody(HttpRequestBody.of(bytes))}, the builder has no {@code body(byte[])} method.
+ */
 @RecordBuilder
 public record HttpRequest(
         HttpMethod method,
@@ -14,10 +21,12 @@ public record HttpRequest(
         Map<String, String> pathParams,
         Map<String, String> queryParams,
         Map<String, String> formParams,
+        Map<String, String> headers,
+        String remoteAddress,
         String authorization,
         String session,
         Principal principal,
-        byte[] body
+        HttpRequestBody requestBody
 ) {
 
     public static HttpRequestBuilder builder() {
@@ -40,11 +49,63 @@ public record HttpRequest(
         return Optional.ofNullable(formParams.get(name));
     }
 
+    /**
+     * Returns the first value of the given request header, the name is case insensitive.
+     */
+    public Optional<String> header(String name) {
+        return headers == null ? Optional.empty() : Optional.ofNullable(headers.get(name.toLowerCase()));
+    }
+
+    /**
+     * Returns the value of the given cookie, without decoding the other cookies.
+     */
+    public Optional<String> cookie(String name) {
+        return header("cookie").map(cookieHeader -> HttpParams.findCookie(cookieHeader, name));
+    }
+
+    /**
+     * Returns all cookies, which are decoded when the map is first accessed.
+     */
+    public Map<String, String> cookies() {
+        return HttpParams.ofCookies(header("cookie").orElse(null));
+    }
+
+    /**
+     * Returns whether the If-None-Match header matches the given entity tag, using weak comparison.
+     */
+    public boolean matchesEtag(String etag) {
+        String ifNoneMatch = header("if-none-match").orElse(null);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public byte[] body() {
+        return requestBody == null ? null : requestBody.bytes();
+    }
+
+    public InputStream bodyStream() {
+        return requestBody == null ? InputStream.nullInputStream() : requestBody.stream();
+    }
+
     public <T> T body(HttpCodec codec, Class<T> clazz) {
+        byte[] body = body();
         return body == null ? null : codec.decode(clazz, body);
     }
 
     public String text() {
+        byte[] body = body();
         return body == null ? null : new String(body, StandardCharsets.UTF_8); // TODO (correctness): use correct charset
     }
 
@@ -0,0 +1,60 @@
+package com.github.phoswald.rstm.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * The body of a request, which is opened only when it is accessed.
+ *
+ * The body can either be consumed once as a stream, or it can be read completely into memory and accessed any number
+ * of times.
+ */
+public final class HttpRequestBody {
+
+    private final Supplier<InputStream> supplier;
+    private byte[] bytes;
+    private boolean opened;
+
+    private HttpRequestBody(Supplier<InputStream> supplier, byte[] bytes) {
+        this.supplier = supplier;
+        this.bytes = bytes;
+    }
+
+    public static HttpRequestBody of(byte[] bytes) {
+        return new HttpRequestBody(null, Objects.requireNonNull(bytes));
+    }
+
+    public static HttpRequestBody of(Supplier<InputStream> supplier) {
+        return new HttpRequestBody(Objects.requireNonNull(supplier), null);
+    }
+
+    public synchronized InputStream stream() {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        return open();
+    }
+
+    public synchronized byte[] bytes() {
+        if (bytes == null) {
+            try (InputStream input = open()) {
+                bytes = input.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bytes;
+    }
+
+    private InputStream open() {
+        if (opened) {
+            throw new IllegalStateException("Request body already consumed");
+        }
+        opened = true;
+        return supplier.get();
+    }
+}
@@ -4,6 +4,8 @@ import static com.github.phoswald.rstm.http.HttpConstants.CONTENT_TYPE_HTML;
 import static com.github.phoswald.rstm.http.HttpConstants.CONTENT_TYPE_TEXT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.util.Map;
+
 import com.github.phoswald.record.builder.RecordBuilder;
 
 @RecordBuilder
@@ -12,13 +14,19 @@ public record HttpResponse(
         String contentType,
         String location,
         String session,
-        byte[] body
+        Map<String, String> headers,
+        byte[] body,
+        HttpBodyWriter bodyWriter
 ) {
 
     public static HttpResponseBuilder builder() {
         return new HttpResponseBuilder();
     }
 
+    public HttpResponseBuilder toBuilder() {
+        return new HttpResponseBuilder(this);
+    }
+
     public static HttpResponse empty(int status) {
         return builder().status(status).build();
     }
@@ -47,6 +55,14 @@ public record HttpResponse(
                 .build();
     }
 
+    public static HttpResponse stream(int status, String contentType, HttpBodyWriter bodyWriter) {
+        return builder()
+                .status(status)
+                .contentType(contentType)
+                .bodyWriter(bodyWriter)
+                .build();
+    }
+
     public static HttpResponse redirect(int status, String location) {
         return builder().status(status).location(location).build();
     }
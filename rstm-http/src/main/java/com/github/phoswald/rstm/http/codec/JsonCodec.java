@@ -2,9 +2,6 @@ package com.github.phoswald.rstm.http.codec;
 
 import static com.github.phoswald.rstm.http.HttpConstants.CONTENT_TYPE_JSON;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-
 import com.github.phoswald.rstm.databind.Databinder;
 import com.github.phoswald.rstm.http.HttpCodec;
 
@@ -23,13 +20,11 @@ public class JsonCodec implements HttpCodec {
 
     @Override
     public byte[] encode(Object object) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        BINDER.toJson(object, buffer);
-        return buffer.toByteArray();
+        return BINDER.toJsonBytes(object);
     }
 
     @Override
     public <T> T decode(Class<T> clazz, byte[] bytes) {
-        return BINDER.fromJson(new ByteArrayInputStream(bytes), clazz);
+        return BINDER.fromJson(bytes, clazz);
     }
 }
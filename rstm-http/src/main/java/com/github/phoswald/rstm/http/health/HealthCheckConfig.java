@@ -0,0 +1,26 @@
+package com.github.phoswald.rstm.http.health;
+
+import java.time.Duration;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Configures how health checks are run, by default they run one after another on the thread of the request.
+ *
+ * @param parallel true to run the checks in parallel, each on its own virtual thread
+ * @param timeout the time after which a check that has not completed is reported as down, or null to wait
+ * @param ttl the time for which the result of a check is reused, or null to run the checks for every request
+ * @param background true to refresh the checks in the background every TTL, requests only read the latest results
+ */
+@RecordBuilder
+public record HealthCheckConfig(
+        boolean parallel,
+        Duration timeout,
+        Duration ttl,
+        boolean background
+) {
+
+    public static HealthCheckConfigBuilder builder() {
+        return new HealthCheckConfigBuilder();
+    }
+}
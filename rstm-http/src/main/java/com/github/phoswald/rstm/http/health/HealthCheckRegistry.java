@@ -3,10 +3,20 @@ package com.github.phoswald.rstm.http.health;
 import static com.github.phoswald.rstm.http.codec.JsonCodec.json;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,31 +24,188 @@ import org.slf4j.LoggerFactory;
 import com.github.phoswald.rstm.http.HttpResponse;
 import com.github.phoswald.rstm.http.server.HttpFilter;
 
-public class HealthCheckRegistry {
+/**
+ * Runs the registered health checks, as configured either for every request or in the background.
+ *
+ * A check that runs on the executor is interrupted when it times out, and it is not started again while it is still
+ * running (a hanging check is reported as down instead). In the background, a result that has not been refreshed for
+ * another TTL (plus the timeout) after it expired is reported as down, since the refresh apparently hangs.
+ */
+public class HealthCheckRegistry implements AutoCloseable {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final HealthCheckConfig config;
+    private final LongSupplier clock;
     private final AtomicInteger nextId = new AtomicInteger(1);
     private final SortedMap<Integer, HealthCheck> checks = new ConcurrentSkipListMap<>();
+    private final Map<Integer, CachedResult> results = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<HealthCheckResult>> runningChecks = new ConcurrentHashMap<>();
+    private final ExecutorService executor; // null: checks run on the calling thread
+    private final ScheduledExecutorService scheduler; // null: no background refresh
+
+    public HealthCheckRegistry() {
+        this(HealthCheckConfig.builder().build());
+    }
+
+    public HealthCheckRegistry(HealthCheckConfig config) {
+        this(config, System::nanoTime, createScheduler(config));
+    }
+
+    /**
+     * @param clock the source of the current time in nanoseconds, for the TTL
+     * @param scheduler the scheduler of the background refresh, or null to refresh only when {@link #refresh()} is called
+     */
+    HealthCheckRegistry(HealthCheckConfig config, LongSupplier clock, ScheduledExecutorService scheduler) {
+        if (config.background() && config.ttl() == null) {
+            throw new IllegalArgumentException("Background refresh requires a TTL");
+        }
+        this.config = config;
+        this.clock = clock;
+        if (config.parallel() || config.timeout() != null || config.background()) {
+            this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.executor = null;
+        }
+        this.scheduler = scheduler;
+        if (scheduler != null) {
+            long interval = config.ttl().toNanos();
+            scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, NANOSECONDS);
+        }
+    }
 
     public HealthCheck registerCheck(String name, HealthCheckFunction checkFunction) {
         var check = new HealthCheck(nextId.getAndIncrement(), name, checkFunction);
         checks.put(check.id(), check);
+        if (config.background()) {
+            startCheck(check); // provides a result before the next refresh
+        }
         return check;
     }
 
     public HttpFilter createRoute() {
-        return route("/health", get(_ -> checkHealth()));
+        return route("/health", get(_ -> {
+            var response = checkHealth();
+            return HttpResponse.body(response.httpStatus(), json(), response);
+        }));
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    HealthCheckResponse checkHealth() {
+        List<HealthCheckResult> results;
+        if (config.background()) {
+            results = checks.values().stream()
+                    .map(this::getLatestResult)
+                    .toList();
+        } else if (config.parallel()) {
+            results = checks.values().stream()
+                    .map(this::getResult)
+                    .toList().stream() // start all checks before waiting for the first
+                    .map(CompletableFuture::join)
+                    .toList();
+        } else {
+            results = checks.values().stream()
+                    .map(check -> getResult(check).join())
+                    .toList();
+        }
+        return HealthCheckResponse.create(true, results);
+    }
+
+    private static ScheduledExecutorService createScheduler(HealthCheckConfig config) {
+        return config.background() && config.ttl() != null // otherwise rejected by the constructor
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("health-refresh").daemon().factory())
+                : null;
     }
 
-    private HttpResponse checkHealth() {
-        var results = checks.values().stream()
-                .map(this::checkHealth)
-                .toList();
-        var response = HealthCheckResponse.create(true, results);
-        return HttpResponse.body(response.httpStatus(), json(), response);
+    private HealthCheckResult getLatestResult(HealthCheck check) {
+        CachedResult cached = results.get(check.id());
+        long graceNanos = config.ttl().toNanos() + (config.timeout() == null ? 0 : config.timeout().toNanos());
+        if (cached == null || clock.getAsLong() - cached.expiresAt() > graceNanos) {
+            return HealthCheckResult.create(check.name(), false); // not checked yet, or not refreshed
+        }
+        return cached.result();
+    }
+
+    private CompletableFuture<HealthCheckResult> getResult(HealthCheck check) {
+        CachedResult cached = results.get(check.id());
+        if (cached != null && clock.getAsLong() - cached.expiresAt() < 0) {
+            return CompletableFuture.completedFuture(cached.result());
+        }
+        return startCheck(check);
+    }
+
+    void refresh() {
+        try {
+            checks.values().forEach(this::startCheck); // not awaited, so a hanging check does not block the others
+        } catch (RuntimeException e) {
+            logger.warn("Exception while refreshing: {}", e.toString()); // keeps the refresh scheduled
+        }
     }
 
-    private HealthCheckResult checkHealth(HealthCheck check) {
+    private CompletableFuture<HealthCheckResult> startCheck(HealthCheck check) {
+        if (executor == null) {
+            return cacheResult(check, CompletableFuture.completedFuture(runCheck(check)));
+        }
+        CompletableFuture<HealthCheckResult> result = new CompletableFuture<>();
+        CompletableFuture<HealthCheckResult> running = runningChecks.putIfAbsent(check.id(), result);
+        if (running != null) {
+            return running; // completed as down if the running check has timed out
+        }
+        CompletableFuture<HealthCheckResult> future = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    future.complete(runCheck(check));
+                } finally {
+                    runningChecks.remove(check.id(), result);
+                }
+            });
+        } catch (RuntimeException e) {
+            runningChecks.remove(check.id(), result);
+            throw e;
+        }
+        CompletableFuture<HealthCheckResult> timedFuture = future;
+        if (config.timeout() != null) {
+            timedFuture = future
+                    .orTimeout(config.timeout().toNanos(), NANOSECONDS)
+                    .exceptionally(_ -> {
+                        task.cancel(true); // remains running until the check reacts to the interrupt
+                        logger.warn("Timeout while checking '{}' after {}", check.name(), config.timeout());
+                        return HealthCheckResult.create(check.name(), false);
+                    });
+        }
+        cacheResult(check, timedFuture).whenComplete((value, exception) -> {
+            if (exception != null) {
+                result.completeExceptionally(exception);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<HealthCheckResult> cacheResult(HealthCheck check, CompletableFuture<HealthCheckResult> future) {
+        if (config.ttl() == null) {
+            return future;
+        }
+        long startedAt = clock.getAsLong();
+        return future.thenApply(result -> {
+            long expiresAt = (config.background() ? clock.getAsLong() : startedAt) + config.ttl().toNanos();
+            results.put(check.id(), new CachedResult(result, expiresAt));
+            return result;
+        });
+    }
+
+    private HealthCheckResult runCheck(HealthCheck check) {
         try {
             return HealthCheckResult.create(check.name(), check.function().invoke());
         } catch (Exception e) {
@@ -46,4 +213,6 @@ public class HealthCheckRegistry {
             return HealthCheckResult.create(check.name(), false);
         }
     }
+
+    private record CachedResult(HealthCheckResult result, long expiresAt) { }
 }
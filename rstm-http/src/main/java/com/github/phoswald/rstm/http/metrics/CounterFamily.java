@@ -0,0 +1,68 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters with the same name and label names, the children are registered when their label values are first used.
+ *
+ * Looking up an existing child does not create any labels or instances: the label values are resolved through one
+ * map per label.
+ */
+public final class CounterFamily {
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final String[] labelNames;
+    private final Map<String, Object> children = new ConcurrentHashMap<>();
+
+    CounterFamily(MetricsRegistry registry, String name, String... labelNames) {
+        if (labelNames.length == 0) {
+            throw new IllegalArgumentException("Missing label names");
+        }
+        MetricLabel[] labels = new MetricLabel[labelNames.length];
+        for (int index = 0; index < labelNames.length; index++) {
+            labels[index] = new MetricLabel(labelNames[index], "");
+        }
+        MetricInstance.create(name, labels); // validates the names
+        this.registry = registry;
+        this.name = name;
+        this.labelNames = labelNames.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedCounter labels(String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException("Expected " + labelNames.length + " label values, got " + labelValues.length);
+        }
+        Map<String, Object> level = children;
+        for (int index = 0; index < labelValues.length - 1; index++) {
+            Object next = level.get(requireValue(labelValues[index]));
+            if (next == null) {
+                next = level.computeIfAbsent(labelValues[index], _ -> new ConcurrentHashMap<>());
+            }
+            level = (Map<String, Object>) next;
+        }
+        String lastValue = requireValue(labelValues[labelValues.length - 1]);
+        Object child = level.get(lastValue);
+        if (child == null) {
+            child = level.computeIfAbsent(lastValue, _ -> register(labelValues.clone()));
+        }
+        return (StripedCounter) child;
+    }
+
+    private StripedCounter register(String[] labelValues) {
+        MetricLabel[] labels = new MetricLabel[labelNames.length];
+        for (int index = 0; index < labelNames.length; index++) {
+            labels[index] = new MetricLabel(labelNames[index], labelValues[index]);
+        }
+        return registry.registerStripedCounter(name, labels);
+    }
+
+    private static String requireValue(String labelValue) {
+        if (labelValue == null) {
+            throw new IllegalArgumentException("Invalid label value");
+        }
+        return labelValue;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts observations in buckets with the given upper bounds, plus an implicit bucket for +Inf.
+ *
+ * Updates are lock-free and allocation-free: the buckets and the sum are striped adders, so concurrent updates rarely
+ * contend. The cumulative counts required by Prometheus are only computed when the metrics are collected.
+ */
+public record Histogram(MetricInstance instance, double[] bounds, LongAdder[] counts, DoubleAdder sum) implements Metric {
+
+    static final double[] DEFAULT_BOUNDS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private static final MetricLabel INF_LABEL = new MetricLabel("le", "+Inf");
+
+    static Histogram create(MetricInstance instance, double[] bounds) {
+        validateBounds(bounds);
+        LongAdder[] counts = new LongAdder[bounds.length + 1];
+        Arrays.setAll(counts, _ -> new LongAdder());
+        return new Histogram(instance, bounds.clone(), counts, new DoubleAdder());
+    }
+
+    static void validateBounds(double[] bounds) {
+        for (int index = 0; index < bounds.length; index++) {
+            if (!Double.isFinite(bounds[index]) || (index > 0 && bounds[index] <= bounds[index - 1])) {
+                throw new IllegalArgumentException("Invalid bucket bounds: " + Arrays.toString(bounds));
+            }
+        }
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        counts[index < 0 ? -index - 1 : index].increment(); // first bucket with value <= bound
+        sum.add(value);
+    }
+
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucketCount : counts) {
+            count += bucketCount.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double calculateValue() {
+        return count();
+    }
+
+    /**
+     * Renders the prefixes of the bucket lines, followed by the sum and the count.
+     */
+    byte[][] renderPrefixes() {
+        byte[][] prefixes = new byte[counts.length + 2][];
+        for (int index = 0; index < counts.length; index++) {
+            MetricLabel label = index < bounds.length ? new MetricLabel("le", MetricInstance.formatNumber(bounds[index])) : INF_LABEL;
+            prefixes[index] = instance.render("_bucket", label);
+        }
+        prefixes[counts.length] = instance.render("_sum", null);
+        prefixes[counts.length + 1] = instance.render("_count", null);
+        return prefixes;
+    }
+
+    void write(MetricsWriter writer, byte[][] prefixes) throws IOException {
+        long count = 0;
+        for (int index = 0; index < counts.length; index++) {
+            count += counts[index].sum();
+            writer.writeLine(prefixes[index], count);
+        }
+        writer.writeLine(prefixes[counts.length], sum.sum());
+        writer.writeLine(prefixes[counts.length + 1], count);
+    }
+}
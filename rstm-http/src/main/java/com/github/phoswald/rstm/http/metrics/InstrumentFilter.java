@@ -0,0 +1,184 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import static java.util.function.Predicate.not;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.server.HttpFilter;
+import com.github.phoswald.rstm.http.server.HttpServerConfig;
+import com.github.phoswald.rstm.http.server.RouteMetadata;
+
+/**
+ * Records the duration until a response is returned, by method, route template and status class.
+ *
+ * The route templates are taken from the metadata of the wrapped filters and matched against the path without
+ * allocating, the histograms for each combination of labels are registered when they are first used.
+ */
+class InstrumentFilter implements HttpFilter {
+
+    private static final String UNMATCHED = "unmatched";
+    private static final int STATUS_CLASSES = 5;
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final double[] bounds;
+    private final HttpFilter filter;
+    private final Node root;
+    private final RouteTimer[] unmatched;
+
+    InstrumentFilter(MetricsRegistry registry, String name, double[] bounds, HttpFilter filter) {
+        Histogram.validateBounds(bounds);
+        MetricInstance.create(name); // validates the name
+        this.registry = registry;
+        this.name = name;
+        this.bounds = bounds.clone();
+        this.filter = filter;
+        this.root = new Node();
+        this.unmatched = new RouteTimer[HttpMethod.values().length];
+        for (HttpMethod method : HttpMethod.values()) {
+            unmatched[method.ordinal()] = new RouteTimer(Integer.MAX_VALUE, UNMATCHED, method);
+        }
+        List<RouteMetadata> routes = filter.createMetadata();
+        for (int order = 0; order < routes.size(); order++) {
+            add(order, routes.get(order));
+        }
+    }
+
+    private InstrumentFilter(InstrumentFilter other, HttpFilter filter) {
+        this.registry = other.registry;
+        this.name = other.name;
+        this.bounds = other.bounds;
+        this.filter = filter;
+        this.root = other.root; // shares the histograms
+        this.unmatched = other.unmatched;
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            HttpResponse response = filter.handle(path, request, config);
+            status = response == null ? 404 : response.status() == 0 ? 200 : response.status();
+            return response;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            RouteTimer timer = path.endsWith("/") ? null : find(root, path, 0, request.method());
+            if (timer == null) {
+                timer = unmatched[request.method().ordinal()];
+            }
+            timer.histogram(status).observeNanos(nanos);
+        }
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new InstrumentFilter(this, filter.compile());
+    }
+
+    private void add(int order, RouteMetadata route) {
+        Node node = root;
+        for (String part : Stream.of(route.route().split("/")).filter(not(String::isEmpty)).toList()) {
+            node = part.startsWith("{") && part.endsWith("}") ? node.param() : node.literal(part);
+        }
+        if (node.timers[route.method().ordinal()] == null) { // the first declared route wins
+            node.timers[route.method().ordinal()] = new RouteTimer(order, route.route(), route.method());
+        }
+    }
+
+    /**
+     * Finds the timer of the first declared route that matches, or null.
+     */
+    private static RouteTimer find(Node node, String path, int start, HttpMethod method) {
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start == path.length()) {
+            return node.timers[method.ordinal()];
+        }
+        int end = path.indexOf('/', start);
+        if (end == -1) {
+            end = path.length();
+        }
+        RouteTimer result = null;
+        for (int index = 0; index < node.literals.size(); index++) {
+            Literal literal = node.literals.get(index);
+            if (literal.part().length() == end - start && path.startsWith(literal.part(), start)) {
+                result = find(literal.node(), path, end, method);
+                break;
+            }
+        }
+        if (node.param != null) {
+            RouteTimer paramResult = find(node.param, path, end, method);
+            if (result == null || (paramResult != null && paramResult.order < result.order)) {
+                result = paramResult;
+            }
+        }
+        return result;
+    }
+
+    private class RouteTimer {
+
+        final int order;
+        final String route;
+        final HttpMethod method;
+        final AtomicReferenceArray<Histogram> histograms = new AtomicReferenceArray<>(STATUS_CLASSES);
+
+        RouteTimer(int order, String route, HttpMethod method) {
+            this.order = order;
+            this.route = route;
+            this.method = method;
+        }
+
+        Histogram histogram(int status) {
+            int statusClass = Math.clamp(status / 100, 1, STATUS_CLASSES);
+            Histogram histogram = histograms.get(statusClass - 1);
+            if (histogram == null) { // concurrent callers get the same instance from the registry
+                histogram = registry.getOrRegisterHistogram(name, bounds,
+                        new MetricLabel("method", method.name()),
+                        new MetricLabel("route", route),
+                        new MetricLabel("status", statusClass + "xx"));
+                histograms.set(statusClass - 1, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    private static class Node {
+
+        final List<Literal> literals = new ArrayList<>();
+        final RouteTimer[] timers = new RouteTimer[HttpMethod.values().length];
+        Node param;
+
+        Node literal(String part) {
+            for (Literal literal : literals) {
+                if (literal.part().equals(part)) {
+                    return literal.node();
+                }
+            }
+            Node node = new Node();
+            literals.add(new Literal(part, node));
+            return node;
+        }
+
+        Node param() {
+            if (param == null) {
+                param = new Node();
+            }
+            return param;
+        }
+    }
+
+    private record Literal(String part, Node node) { }
+}
@@ -1,6 +1,6 @@
 package com.github.phoswald.rstm.http.metrics;
 
-public sealed interface Metric permits Counter, Gauge {
+public sealed interface Metric permits Counter, StripedCounter, SummingCounter, Gauge, Histogram {
 
     MetricInstance instance();
 
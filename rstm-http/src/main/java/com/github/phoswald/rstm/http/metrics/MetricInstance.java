@@ -1,5 +1,7 @@
 package com.github.phoswald.rstm.http.metrics;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -34,21 +36,20 @@ public record MetricInstance(String name, List<MetricLabel> labels) {
         return new MetricInstance(name, Stream.of(labels).sorted(MetricLabel.COMPARE).toList());
     }
 
-    void formatValue(StringBuilder builder, double doubleValue) {
-        format(builder);
+    /**
+     * Renders the name and labels of a line, including the separator before the value.
+     */
+    byte[] render(String suffix, MetricLabel extraLabel) {
+        var builder = new StringBuilder();
+        format(builder, suffix, extraLabel);
         builder.append(' ');
-        long longValue = (long) doubleValue;
-        if ((double) longValue == doubleValue) {
-            builder.append(longValue);
-        } else {
-            builder.append(doubleValue);
-        }
-        builder.append('\n');
+        return builder.toString().getBytes(UTF_8);
     }
 
-    void format(StringBuilder builder) {
+    private void format(StringBuilder builder, String suffix, MetricLabel extraLabel) {
         builder.append(name);
-        if (!labels.isEmpty()) {
+        builder.append(suffix);
+        if (!labels.isEmpty() || extraLabel != null) {
             builder.append('{');
             boolean first = true;
             for (MetricLabel label : labels) {
@@ -58,7 +59,22 @@ public record MetricInstance(String name, List<MetricLabel> labels) {
                 first = false;
                 label.format(builder);
             }
+            if (extraLabel != null) {
+                if (!first) {
+                    builder.append(',');
+                }
+                extraLabel.format(builder);
+            }
             builder.append('}');
         }
     }
+
+    static String formatNumber(double doubleValue) {
+        long longValue = (long) doubleValue;
+        if ((double) longValue == doubleValue) {
+            return Long.toString(longValue);
+        } else {
+            return Double.toString(doubleValue);
+        }
+    }
 }
@@ -1,11 +1,20 @@
 package com.github.phoswald.rstm.http.metrics;
 
+import static com.github.phoswald.rstm.http.HttpConstants.CONTENT_TYPE_TEXT;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.combine;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,8 +24,12 @@ import com.github.phoswald.rstm.http.server.HttpFilter;
 
 public class MetricsRegistry {
 
+    private static final String DEFAULT_REQUESTS_NAME = "http_server_requests_seconds";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final SortedMap<MetricInstance, Metric> metrics = new ConcurrentSkipListMap<>(MetricInstance.COMPARE);
+    private final SortedMap<MetricInstance, Registration> metrics = new ConcurrentSkipListMap<>(MetricInstance.COMPARE);
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(); // reused, guarded by itself
+    private final MetricsWriter bufferWriter = new MetricsWriter(buffer);
 
     public Gauge registerGauge(String name, GaugeSupplier value, MetricLabel... labels) {
         return register(new Gauge(MetricInstance.create(name, labels), value));
@@ -26,29 +39,133 @@ public class MetricsRegistry {
         return register(new Counter(MetricInstance.create(name, labels), new AtomicLong()));
     }
 
+    public StripedCounter registerStripedCounter(String name, MetricLabel... labels) {
+        return register(new StripedCounter(MetricInstance.create(name, labels), new LongAdder()));
+    }
+
+    public SummingCounter registerSummingCounter(String name, MetricLabel... labels) {
+        return register(new SummingCounter(MetricInstance.create(name, labels), new DoubleAdder()));
+    }
+
+    public CounterFamily registerCounterFamily(String name, String... labelNames) {
+        return new CounterFamily(this, name, labelNames);
+    }
+
+    public Histogram registerHistogram(String name, MetricLabel... labels) {
+        return registerHistogram(name, Histogram.DEFAULT_BOUNDS, labels);
+    }
+
+    public Histogram registerHistogram(String name, double[] bounds, MetricLabel... labels) {
+        return register(Histogram.create(createHistogramInstance(name, labels), bounds));
+    }
+
+    Histogram getOrRegisterHistogram(String name, double[] bounds, MetricLabel... labels) {
+        MetricInstance instance = createHistogramInstance(name, labels);
+        if (metrics.computeIfAbsent(instance, _ -> new Registration(Histogram.create(instance, bounds))).metric() instanceof Histogram histogram) {
+            return histogram;
+        }
+        throw new IllegalArgumentException("Duplicate instance: " + instance);
+    }
+
+    private static MetricInstance createHistogramInstance(String name, MetricLabel... labels) {
+        for (var label : labels) {
+            if ("le".equals(label.name())) {
+                throw new IllegalArgumentException("Reserved label name: " + label.name());
+            }
+        }
+        return MetricInstance.create(name, labels);
+    }
+
     private <T extends Metric> T register(T metric) {
-        if (metrics.putIfAbsent(metric.instance(), metric) != null) {
+        if (metrics.putIfAbsent(metric.instance(), new Registration(metric)) != null) {
             throw new IllegalArgumentException("Duplicate instance: " + metric.instance());
         }
         return metric;
     }
 
     public HttpFilter createRoute() {
-        return route("/metrics", get(_ -> HttpResponse.text(200, collectMetrics())));
+        return createRoute(false);
+    }
+
+    /**
+     * Creates the scrape endpoint, which either buffers the metrics or streams them directly to the connection.
+     */
+    public HttpFilter createRoute(boolean streaming) {
+        if (streaming) {
+            return route("/metrics", get(_ -> HttpResponse.stream(200, CONTENT_TYPE_TEXT, this::writeMetrics)));
+        } else {
+            return route("/metrics", get(_ -> HttpResponse.builder()
+                    .status(200)
+                    .contentType(CONTENT_TYPE_TEXT)
+                    .body(collectMetricBytes())
+                    .build()));
+        }
+    }
+
+    /**
+     * Records the duration of requests in histograms by method, route template and status class.
+     */
+    public HttpFilter instrument(HttpFilter... filters) {
+        return instrument(DEFAULT_REQUESTS_NAME, Histogram.DEFAULT_BOUNDS, filters);
+    }
+
+    public HttpFilter instrument(String name, double[] bounds, HttpFilter... filters) {
+        return new InstrumentFilter(this, name, bounds, combine(filters));
     }
 
     String collectMetrics() {
-        var builder = new StringBuilder();
-        metrics.forEach((_, metric) -> collectMetric(builder, metric));
-        return builder.toString();
+        return new String(collectMetricBytes(), UTF_8);
+    }
+
+    byte[] collectMetricBytes() {
+        synchronized (buffer) {
+            try {
+                buffer.reset();
+                bufferWriter.reset(buffer);
+                writeMetrics(bufferWriter);
+                return buffer.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // not thrown by ByteArrayOutputStream
+            }
+        }
+    }
+
+    void writeMetrics(OutputStream output) throws IOException {
+        writeMetrics(new MetricsWriter(output));
     }
 
-    private void collectMetric(StringBuilder builder, Metric metric) {
+    private void writeMetrics(MetricsWriter writer) throws IOException {
+        for (Registration registration : metrics.values()) {
+            writeMetric(writer, registration);
+        }
+        writer.flush();
+    }
+
+    private void writeMetric(MetricsWriter writer, Registration registration) throws IOException {
+        Metric metric = registration.metric();
+        if (metric instanceof Histogram histogram) {
+            histogram.write(writer, registration.prefixes());
+            return;
+        }
+        double value;
         try {
-            double value = metric.calculateValue();
-            metric.instance().formatValue(builder, value);
+            value = metric.calculateValue();
         } catch (Exception e) {
             logger.warn("Exception while collecting '{}': {}", metric.instance().name(), e.toString());
+            return;
+        }
+        writer.writeLine(registration.prefixes()[0], value);
+    }
+
+    /**
+     * Holds a metric together with the bytes of its names and labels, which are rendered when it is registered.
+     */
+    private record Registration(Metric metric, byte[][] prefixes) {
+
+        Registration(Metric metric) {
+            this(metric, metric instanceof Histogram histogram
+                    ? histogram.renderPrefixes()
+                    : new byte[][] { metric.instance().render("", null) });
         }
     }
 }
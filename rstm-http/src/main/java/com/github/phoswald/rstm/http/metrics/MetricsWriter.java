@@ -0,0 +1,87 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the text exposition format, combining pre-rendered prefixes with values that are formatted in place.
+ */
+final class MetricsWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_NUMBER_LENGTH = 32;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private OutputStream output;
+    private int count;
+
+    MetricsWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    void reset(OutputStream output) {
+        this.output = output;
+        this.count = 0;
+    }
+
+    void writeLine(byte[] prefix, double value) throws IOException {
+        if (count + prefix.length + MAX_NUMBER_LENGTH + 1 > buffer.length) {
+            flushBuffer();
+        }
+        if (prefix.length + MAX_NUMBER_LENGTH + 1 > buffer.length) {
+            output.write(prefix); // does not fit into the buffer at all
+        } else {
+            System.arraycopy(prefix, 0, buffer, count, prefix.length);
+            count += prefix.length;
+        }
+        writeNumber(value);
+        buffer[count++] = '\n';
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        output.flush();
+    }
+
+    private void writeNumber(double doubleValue) {
+        long longValue = (long) doubleValue;
+        if ((double) longValue == doubleValue) {
+            writeLong(longValue);
+        } else {
+            String text = Double.toString(doubleValue);
+            for (int pos = 0; pos < text.length(); pos++) {
+                buffer[count++] = (byte) text.charAt(pos); // digits, sign, dot, exponent or NaN/Infinity: ASCII only
+            }
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            for (byte digit : Long.toString(value).getBytes()) {
+                buffer[count++] = digit;
+            }
+            return;
+        }
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int start = count;
+        do {
+            buffer[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int left = start, right = count - 1; left < right; left++, right--) {
+            byte digit = buffer[left];
+            buffer[left] = buffer[right];
+            buffer[right] = digit;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            output.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
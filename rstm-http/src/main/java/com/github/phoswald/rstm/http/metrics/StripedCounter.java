@@ -0,0 +1,22 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts using striped cells, so threads incrementing concurrently do not contend on a single cache line.
+ */
+public record StripedCounter(MetricInstance instance, LongAdder value) implements Metric {
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    @Override
+    public double calculateValue() {
+        return value.sum();
+    }
+}
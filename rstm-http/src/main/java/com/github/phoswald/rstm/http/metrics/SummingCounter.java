@@ -0,0 +1,18 @@
+package com.github.phoswald.rstm.http.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Sums fractional amounts (such as seconds or bytes) using striped cells.
+ */
+public record SummingCounter(MetricInstance instance, DoubleAdder value) implements Metric {
+
+    public void add(double amount) {
+        value.add(amount);
+    }
+
+    @Override
+    public double calculateValue() {
+        return value.sum();
+    }
+}
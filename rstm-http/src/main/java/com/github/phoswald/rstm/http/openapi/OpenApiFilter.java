@@ -1,16 +1,20 @@
 package com.github.phoswald.rstm.http.openapi;
 
+import static com.github.phoswald.rstm.http.HttpConstants.CONTENT_TYPE_JSON;
+import static com.github.phoswald.rstm.http.HttpEtags.createStrong;
 import static com.github.phoswald.rstm.http.codec.JsonCodec.json;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.combine;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.getHtml;
-import static com.github.phoswald.rstm.http.server.HttpServerConfig.getRest;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import com.github.phoswald.rstm.http.HttpMethod;
 import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 import com.github.phoswald.rstm.http.server.HttpFilter;
@@ -21,6 +25,7 @@ public class OpenApiFilter implements HttpFilter {
 
     private final OpenApiConfig config;
     private final HttpFilter filter;
+    private volatile CachedSpec cachedSpec;
 
     public OpenApiFilter(OpenApiConfig config, HttpFilter filter) {
         this.config = config;
@@ -37,14 +42,37 @@ public class OpenApiFilter implements HttpFilter {
         return filter.createMetadata();
     }
 
+    @Override
+    public HttpFilter compile() {
+        return filter.compile();
+    }
+
     private HttpFilter createRoute() {
         return combine(
-                route("/openapi", getRest(json(), Object.class, _ -> createFactory().generateOpenApiSpec())),
+                route("/openapi", new SpecFilter()),
                 route("/openapi/ui", getHtml(this::generateOpenApiUiPage)));
     }
 
     String generateOpenApiSpecJson() {
-        return createFactory().generateOpenApiSpecJson();
+        return getCachedSpec().json();
+    }
+
+    /**
+     * Returns the serialized specification, which is generated on first use (the routes cannot change afterwards).
+     */
+    CachedSpec getCachedSpec() {
+        CachedSpec spec = cachedSpec;
+        if (spec == null) {
+            synchronized (this) {
+                spec = cachedSpec;
+                if (spec == null) {
+                    byte[] bytes = json().encode(createFactory().generateOpenApiSpec());
+                    spec = new CachedSpec(bytes, createStrong(bytes));
+                    cachedSpec = spec;
+                }
+            }
+        }
+        return spec;
     }
 
     private OpenApiSpecFactory createFactory() {
@@ -56,4 +84,39 @@ public class OpenApiFilter implements HttpFilter {
             return reader.readAllAsString();
         }
     }
+
+    record CachedSpec(byte[] bytes, String etag) {
+
+        String json() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Serves the cached specification, with the same metadata as <code>getRest(json(), Object.class, ...)</code>.
+     */
+    private class SpecFilter implements HttpFilter {
+
+        @Override
+        public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) {
+            if (request.method() != HttpMethod.GET || !path.isEmpty()) {
+                return null;
+            }
+            CachedSpec spec = getCachedSpec();
+            if (request.matchesEtag(spec.etag())) {
+                return HttpResponse.builder().status(304).headers(Map.of("etag", spec.etag())).build();
+            }
+            return HttpResponse.builder()
+                    .status(200)
+                    .contentType(CONTENT_TYPE_JSON)
+                    .headers(Map.of("etag", spec.etag()))
+                    .body(spec.bytes())
+                    .build();
+        }
+
+        @Override
+        public List<RouteMetadata> createMetadata() {
+            return List.of(RouteMetadata.forMethod(HttpMethod.GET, CONTENT_TYPE_JSON, null, Object.class));
+        }
+    }
 }
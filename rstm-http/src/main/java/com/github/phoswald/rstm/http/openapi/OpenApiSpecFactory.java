@@ -40,10 +40,6 @@ class OpenApiSpecFactory {
         this.schemaClassesXml = findSchemaClasses(List.of(CONTENT_TYPE_XML));
     }
 
-    String generateOpenApiSpecJson() {
-        return BINDER.toJson(generateOpenApiSpec());
-    }
-
     OpenApiSpec generateOpenApiSpec() {
         return new OpenApiSpecBuilder()
                 .openapi(SPEC_VERSION)
@@ -14,7 +14,7 @@ import com.github.phoswald.rstm.security.Principal;
 /**
  * Guards access to protected resources and enforces authentication and authorization.
  */
-class AuthFilter implements HttpFilter {
+class AuthFilter implements ContextFilter {
 
     private final List<String> roles;
     private final HttpFilter filter;
@@ -25,7 +25,8 @@ class AuthFilter implements HttpFilter {
     }
 
     @Override
-    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+    public HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception {
+        HttpRequest request = context.request();
         Optional<Principal> principal = authenticate(request, config.identityProvider());
         if (principal.isEmpty()) {
             return HttpResponse.builder().status(302).location(request.relativizePath("/login.html")).build();
@@ -33,8 +34,13 @@ class AuthFilter implements HttpFilter {
         if (!authorize(principal.get())) {
             return HttpResponse.builder().status(401).build();
         }
-        request = request.toBuilder().principal(principal.get()).build();
-        return filter.handle(path, request, config);
+        Principal previousPrincipal = context.principal();
+        context.bindPrincipal(principal.get());
+        HttpResponse response = ContextFilter.dispatch(filter, path, context, config);
+        if (response == null) {
+            context.bindPrincipal(previousPrincipal); // the request continues with the next filter
+        }
+        return response;
     }
 
     @Override
@@ -42,6 +48,11 @@ class AuthFilter implements HttpFilter {
         return filter.createMetadata();
     }
 
+    @Override
+    public HttpFilter compile() {
+        return new AuthFilter(roles, filter.compile());
+    }
+
     private Optional<Principal> authenticate(HttpRequest request, IdentityProvider identityProvider) {
         if (request.authorization() != null) {
             if (request.authorization().toLowerCase().startsWith("basic ")) {
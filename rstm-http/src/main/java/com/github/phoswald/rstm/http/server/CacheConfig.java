@@ -0,0 +1,27 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.time.Duration;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Configures the caching of responses to GET requests.
+ *
+ * @param ttl the time for which a response is served from the cache
+ * @param maxSize the maximum size of the cached responses in bytes, the least recently used ones are evicted first
+ * @param principals true to also cache responses to requests with credentials, separately for every identity
+ */
+@RecordBuilder
+public record CacheConfig(
+        Duration ttl,
+        long maxSize,
+        boolean principals
+) {
+
+    static final Duration DEFAULT_TTL = Duration.ofSeconds(5);
+    static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    public static CacheConfigBuilder builder() {
+        return new CacheConfigBuilder().ttl(DEFAULT_TTL).maxSize(DEFAULT_MAX_SIZE);
+    }
+}
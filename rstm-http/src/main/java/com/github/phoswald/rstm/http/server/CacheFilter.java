@@ -0,0 +1,166 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * Caches the responses to GET requests by path and query parameters for a limited time.
+ *
+ * Only complete 200 responses are cached, but not those that set a session, vary by request headers or are marked as
+ * private or no-store. Concurrent misses for the same key wait for a single call of the wrapped filters. Requests with
+ * credentials are only cached if configured, and then separately for every principal, authorization or session.
+ */
+class CacheFilter implements HttpFilter {
+
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final CacheConfig cacheConfig;
+    private final HttpFilter filter;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, CachedResponse> cache; // guarded by itself
+    private final Map<Key, CompletableFuture<HttpResponse>> loading;
+    private final long[] cacheUsage; // guarded by the cache
+
+    CacheFilter(CacheConfig cacheConfig, HttpFilter filter) {
+        if (cacheConfig.ttl() == null || !cacheConfig.ttl().isPositive() || cacheConfig.maxSize() < 0) {
+            throw new IllegalArgumentException("Invalid cache: " + cacheConfig);
+        }
+        this.cacheConfig = cacheConfig;
+        this.filter = filter;
+        this.ttlNanos = cacheConfig.ttl().toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true /* LRU */);
+        this.loading = new ConcurrentHashMap<>();
+        this.cacheUsage = new long[1];
+    }
+
+    private CacheFilter(CacheFilter other, HttpFilter filter) {
+        this.cacheConfig = other.cacheConfig;
+        this.filter = filter;
+        this.ttlNanos = other.ttlNanos;
+        this.cache = other.cache; // shares the cached responses
+        this.loading = other.loading;
+        this.cacheUsage = other.cacheUsage;
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        String identity = getIdentity(request);
+        if (request.method() != HttpMethod.GET || (identity != null && !cacheConfig.principals())) {
+            return filter.handle(path, request, config);
+        }
+        Key key = new Key(request.path(), Map.copyOf(request.queryParams()), identity);
+        HttpResponse cached = lookup(key, System.nanoTime());
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        CompletableFuture<HttpResponse> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            HttpResponse shared = existing.join(); // null if the response could not be shared
+            return shared != null ? shared : filter.handle(path, request, config);
+        }
+        HttpResponse shared = null;
+        try {
+            HttpResponse response = filter.handle(path, request, config);
+            if (isCacheable(response)) {
+                store(key, response);
+                shared = response;
+            }
+            return response;
+        } finally {
+            loading.remove(key, future);
+            future.complete(shared);
+        }
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new CacheFilter(this, filter.compile());
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static String getIdentity(HttpRequest request) {
+        if (request.principal() != null) {
+            return "principal:" + request.principal().name();
+        }
+        if (request.authorization() != null) {
+            return "authorization:" + request.authorization();
+        }
+        if (request.session() != null) {
+            return "session:" + request.session();
+        }
+        return null;
+    }
+
+    private static boolean isCacheable(HttpResponse response) {
+        if (response == null || response.status() != 200 || response.body() == null || response.session() != null) {
+            return false;
+        }
+        if (response.headers() == null) {
+            return true;
+        }
+        String cacheControl = response.headers().get("cache-control");
+        return !response.headers().containsKey("vary")
+                && !response.headers().containsKey("set-cookie")
+                && (cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private")));
+    }
+
+    private HttpResponse lookup(Key key, long now) {
+        synchronized (cache) {
+            CachedResponse cached = cache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (now - cached.expiry() >= 0) {
+                cache.remove(key);
+                cacheUsage[0] -= cached.weight();
+                return null;
+            }
+            return cached.response();
+        }
+    }
+
+    private void store(Key key, HttpResponse response) {
+        long weight = ENTRY_OVERHEAD + response.body().length + 2L * key.path().length();
+        if (weight > cacheConfig.maxSize()) {
+            return;
+        }
+        CachedResponse cached = new CachedResponse(response, System.nanoTime() + ttlNanos, weight);
+        synchronized (cache) {
+            CachedResponse replaced = cache.put(key, cached);
+            if (replaced != null) {
+                cacheUsage[0] -= replaced.weight();
+            }
+            cacheUsage[0] += weight;
+            var iterator = cache.values().iterator();
+            while (cacheUsage[0] > cacheConfig.maxSize() && iterator.hasNext()) {
+                CachedResponse evicted = iterator.next();
+                if (evicted != cached) {
+                    cacheUsage[0] -= evicted.weight();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private record Key(String path, Map<String, String> queryParams, String identity) { }
+
+    private record CachedResponse(HttpResponse response, long expiry, long weight) { }
+}
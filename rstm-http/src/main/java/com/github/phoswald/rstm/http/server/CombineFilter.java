@@ -2,10 +2,9 @@ package com.github.phoswald.rstm.http.server;
 
 import java.util.List;
 
-import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 
-class CombineFilter implements HttpFilter {
+class CombineFilter implements ContextFilter {
 
     private final List<HttpFilter> filters;
 
@@ -14,9 +13,9 @@ class CombineFilter implements HttpFilter {
     }
 
     @Override
-    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+    public HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception {
         for (HttpFilter filter : filters) {
-            HttpResponse resoponse = filter.handle(path, request, config);
+            HttpResponse resoponse = ContextFilter.dispatch(filter, path, context, config);
             if (resoponse != null) {
                 return resoponse;
             }
@@ -30,4 +29,13 @@ class CombineFilter implements HttpFilter {
                 .flatMap(filter -> filter.createMetadata().stream())
                 .toList();
     }
+
+    @Override
+    public HttpFilter compile() {
+        return new TrieFilter(this);
+    }
+
+    List<HttpFilter> filters() {
+        return filters;
+    }
 }
@@ -0,0 +1,35 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.List;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+import com.github.phoswald.rstm.http.HttpHeaderValue;
+
+/**
+ * Configures response compression.
+ *
+ * @param threshold the minimum body size in bytes, smaller bodies are sent uncompressed
+ * @param contentTypes the content types to compress, or null for text, JSON, XML and SVG
+ * @param streaming true to compress while writing to the connection instead of into a buffer
+ */
+@RecordBuilder
+public record CompressConfig(
+        int threshold,
+        List<String> contentTypes,
+        boolean streaming
+) {
+
+    static final int DEFAULT_THRESHOLD = 1024;
+
+    public static CompressConfigBuilder builder() {
+        return new CompressConfigBuilder().threshold(DEFAULT_THRESHOLD);
+    }
+
+    boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String mediaType = HttpHeaderValue.parse(contentType).valueOnly().toLowerCase();
+        return contentTypes == null ? ContentTypes.isCompressible(mediaType) : contentTypes.contains(mediaType);
+    }
+}
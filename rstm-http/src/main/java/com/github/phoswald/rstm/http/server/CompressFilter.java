@@ -0,0 +1,178 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.phoswald.rstm.http.HttpBodyWriter;
+import com.github.phoswald.rstm.http.HttpHeaderValue;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * Compresses response bodies using the content coding preferred by the client (gzip or deflate).
+ */
+class CompressFilter implements HttpFilter {
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+
+    private final CompressConfig compressConfig;
+    private final HttpFilter filter;
+
+    CompressFilter(CompressConfig compressConfig, HttpFilter filter) {
+        this.compressConfig = compressConfig;
+        this.filter = filter;
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        HttpResponse response = filter.handle(path, request, config);
+        if (response == null || !isCompressible(response)) {
+            return response;
+        }
+        Map<String, String> headers = response.headers() == null ? new LinkedHashMap<>() : new LinkedHashMap<>(response.headers());
+        String vary = headers.get("vary");
+        if (vary == null) {
+            headers.put("vary", "accept-encoding");
+        } else if (!vary.toLowerCase().contains("accept-encoding")) {
+            headers.put("vary", vary + ", accept-encoding");
+        }
+        HttpResponse uncompressed = response.toBuilder().headers(headers).build();
+        String encoding = selectEncoding(request);
+        long length = response.body() != null ? response.body().length : response.bodyWriter().length();
+        if (encoding == null || (length >= 0 && length < compressConfig.threshold())) {
+            return uncompressed;
+        }
+
+        HttpBodyWriter bodyWriter;
+        if (response.body() != null && !compressConfig.streaming()) {
+            var buffer = new ByteArrayOutputStream(response.body().length / 2);
+            compress(encoding, response.body(), buffer);
+            if (buffer.size() >= response.body().length) {
+                return uncompressed;
+            }
+            bodyWriter = null;
+            response = response.toBuilder().body(buffer.toByteArray()).build();
+        } else if (response.body() != null) {
+            byte[] body = response.body();
+            bodyWriter = output -> compress(encoding, body, output);
+        } else {
+            HttpBodyWriter rawWriter = response.bodyWriter();
+            bodyWriter = output -> compress(encoding, rawWriter, output);
+        }
+        headers.put("content-encoding", encoding);
+        String etag = headers.get("etag");
+        if (etag != null && etag.startsWith("\"")) {
+            headers.put("etag", "W/" + etag); // the compressed representation is not byte-for-byte identical
+        }
+        return bodyWriter == null
+                ? response.toBuilder().headers(headers).build()
+                : response.toBuilder().headers(headers).body(null).bodyWriter(bodyWriter).build();
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new CompressFilter(compressConfig, filter.compile());
+    }
+
+    private boolean isCompressible(HttpResponse response) {
+        int status = response.status();
+        if ((status != 0 && status < 200) || status == 204 || status == 206 || status == 304) {
+            return false;
+        }
+        if (response.body() != null ? response.body().length == 0 : response.bodyWriter() == null || response.bodyWriter().length() == 0) {
+            return false;
+        }
+        if (response.headers() != null && response.headers().containsKey("content-encoding")) {
+            return false;
+        }
+        return compressConfig.isCompressible(response.contentType());
+    }
+
+    /**
+     * Selects the supported content coding with the highest quality value, preferring gzip (RFC 9110, section 12.5.3).
+     */
+    static String selectEncoding(HttpRequest request) {
+        String acceptEncoding = request.header("accept-encoding").orElse(null);
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzipQuality = -1;
+        double deflateQuality = -1;
+        double wildcardQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            HttpHeaderValue value = HttpHeaderValue.parse(coding);
+            double quality = parseQuality(value.parameter("q").orElse(null));
+            switch (value.valueOnly().toLowerCase()) {
+                case GZIP, "x-gzip" -> gzipQuality = Math.max(gzipQuality, quality);
+                case DEFLATE -> deflateQuality = Math.max(deflateQuality, quality);
+                case "*" -> wildcardQuality = quality;
+                default -> { }
+            }
+        }
+        if (gzipQuality < 0) {
+            gzipQuality = wildcardQuality;
+        }
+        if (deflateQuality < 0) {
+            deflateQuality = wildcardQuality;
+        }
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+            return GZIP;
+        }
+        if (deflateQuality > 0) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    private static double parseQuality(String quality) {
+        if (quality == null) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(quality);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void compress(String encoding, byte[] body, OutputStream output) throws IOException {
+        compress(encoding, compressed -> compressed.write(body), output);
+    }
+
+    private static void compress(String encoding, HttpBodyWriter bodyWriter, OutputStream output) throws IOException {
+        OutputStream target = new UnclosableOutputStream(output); // the connection is closed by the handler
+        try (OutputStream compressed = encoding.equals(GZIP) ? new GZIPOutputStream(target, 8192) : new DeflaterOutputStream(target)) {
+            bodyWriter.write(compressed);
+        }
+    }
+
+    private static class UnclosableOutputStream extends FilterOutputStream {
+
+        UnclosableOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.time.Duration;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+import com.github.phoswald.rstm.http.metrics.MetricsRegistry;
+
+/**
+ * Configures the maximum number of requests that a subtree of filters processes at once, requests beyond the limit
+ * wait in a bounded queue and are rejected with 503 if it is full or if they time out.
+ *
+ * With a latency threshold, the limit adapts between the minimum and the maximum: it is increased by one while requests
+ * are faster than the threshold and the limit is used, and it is decreased by a tenth when a request is slower (AIMD).
+ *
+ * @param maxConcurrent the maximum number of requests in flight, which is the fixed or the initial limit
+ * @param maxQueued the maximum number of waiting requests, or zero to reject immediately
+ * @param queueTimeout the maximum time a request waits for a free slot
+ * @param latencyThreshold the latency above which the adaptive limit is decreased, or null for a fixed limit
+ * @param minConcurrent the lower bound of the adaptive limit
+ * @param name the value of the label that distinguishes the metrics of different limits
+ * @param metrics the registry to which the numbers of requests in flight and waiting are exported, or null
+ */
+@RecordBuilder
+public record ConcurrencyLimitConfig(
+        int maxConcurrent,
+        int maxQueued,
+        Duration queueTimeout,
+        Duration latencyThreshold,
+        int minConcurrent,
+        String name,
+        MetricsRegistry metrics
+) {
+
+    static final Duration DEFAULT_QUEUE_TIMEOUT = Duration.ofSeconds(1);
+
+    public static ConcurrencyLimitConfigBuilder builder() {
+        return new ConcurrencyLimitConfigBuilder()
+                .queueTimeout(DEFAULT_QUEUE_TIMEOUT)
+                .minConcurrent(1)
+                .name("default");
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.metrics.MetricLabel;
+
+/**
+ * Caps the number of requests in flight in a subtree of filters (bulkhead), with a bounded wait queue.
+ *
+ * Slots are taken without locking while the limit is not reached. Waiting requests block on a condition and are
+ * signalled when a slot is released or the adaptive limit grows, a request arriving at that moment may still take the
+ * slot first. The slot is released when the response is returned, before a streamed body is written. Requests that no
+ * filter of the subtree handles are passed on without taking a slot, so they are never rejected here.
+ */
+class ConcurrencyLimitFilter implements HttpFilter {
+
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final HttpFilter filter;
+    private final TrieFilter routes;
+    private final Limiter limiter;
+
+    ConcurrencyLimitFilter(ConcurrencyLimitConfig limitConfig, HttpFilter filter) {
+        if (limitConfig.maxConcurrent() < 1 || limitConfig.maxQueued() < 0 || limitConfig.queueTimeout() == null
+                || limitConfig.minConcurrent() < 1 || limitConfig.minConcurrent() > limitConfig.maxConcurrent()) {
+            throw new IllegalArgumentException("Invalid concurrency limit: " + limitConfig);
+        }
+        this.filter = filter;
+        this.routes = new TrieFilter(filter);
+        this.limiter = new Limiter(limitConfig);
+        if (limitConfig.metrics() != null) {
+            MetricLabel label = new MetricLabel("limiter", limitConfig.name());
+            limitConfig.metrics().registerGauge("http_server_concurrency_limit_in_flight", limiter::inFlight, label);
+            limitConfig.metrics().registerGauge("http_server_concurrency_limit_queued", limiter::queued, label);
+            limitConfig.metrics().registerGauge("http_server_concurrency_limit", limiter::limit, label);
+        }
+    }
+
+    private ConcurrencyLimitFilter(ConcurrencyLimitFilter other) {
+        this.filter = other.routes; // the trie is the compiled subtree
+        this.routes = other.routes;
+        this.limiter = other.limiter; // shares the slots and the gauges
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        if (!routes.accepts(path, request.method())) {
+            return null;
+        }
+        if (!limiter.acquire()) {
+            return HttpResponse.empty(503);
+        }
+        long start = System.nanoTime();
+        try {
+            return filter.handle(path, request, config);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new ConcurrencyLimitFilter(this);
+    }
+
+    Limiter limiter() {
+        return limiter;
+    }
+
+    static class Limiter {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger limit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final int maxQueued;
+        private final long queueTimeoutNanos;
+        private final long latencyThresholdNanos; // zero for a fixed limit
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private volatile int queued; // written with the lock held
+
+        Limiter(ConcurrencyLimitConfig limitConfig) {
+            this.limit = new AtomicInteger(limitConfig.maxConcurrent());
+            this.minLimit = limitConfig.minConcurrent();
+            this.maxLimit = limitConfig.maxConcurrent();
+            this.maxQueued = limitConfig.maxQueued();
+            this.queueTimeoutNanos = limitConfig.queueTimeout().toNanos();
+            this.latencyThresholdNanos = limitConfig.latencyThreshold() == null
+                    ? 0
+                    : Math.max(1, limitConfig.latencyThreshold().toNanos());
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        int queued() {
+            return queued;
+        }
+
+        int limit() {
+            return limit.get();
+        }
+
+        /**
+         * Takes a slot, waiting in the queue if necessary, returns false if the request must be rejected.
+         */
+        boolean acquire() throws InterruptedException {
+            if (tryAcquire()) {
+                return true;
+            }
+            lock.lock();
+            try {
+                if (queued >= maxQueued) {
+                    return false;
+                }
+                queued++;
+                try {
+                    long remainingNanos = queueTimeoutNanos;
+                    while (!tryAcquire()) {
+                        if (remainingNanos <= 0) {
+                            available.signal(); // passes on a signal this request may have consumed
+                            return false;
+                        }
+                        remainingNanos = available.awaitNanos(remainingNanos);
+                    }
+                    return true;
+                } finally {
+                    queued--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit.get()) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(long latencyNanos) {
+            int current = inFlight.getAndDecrement();
+            if (latencyThresholdNanos > 0) {
+                adapt(latencyNanos, current);
+            }
+            if (queued > 0) {
+                lock.lock();
+                try {
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void adapt(long latencyNanos, int inFlightBefore) {
+            if (latencyNanos > latencyThresholdNanos) {
+                limit.updateAndGet(value -> Math.max(minLimit, (int) (value * DECREASE_FACTOR)));
+            } else if (inFlightBefore * 2 >= limit.get()) { // grow only if the limit is actually used
+                limit.updateAndGet(value -> Math.min(maxLimit, value + 1));
+            }
+        }
+    }
+}
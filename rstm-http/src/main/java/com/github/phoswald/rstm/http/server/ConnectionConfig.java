@@ -0,0 +1,71 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Configures connection handling, zero or null values keep the defaults of the JDK server.
+ *
+ * With the JDK engine, the settings except for the backlog and keep-alive are system properties, which are read only
+ * once: they take effect only if they are applied before the first server of the JVM is started. The NIO engine applies
+ * them per server, except for the maximum number of idle connections.
+ *
+ * @param backlog the maximum number of pending connections that have not been accepted yet
+ * @param keepAlive false to close every connection after its response
+ * @param idleTimeout the time after which idle keep-alive connections are closed
+ * @param maxIdleConnections the maximum number of idle keep-alive connections
+ * @param maxRequestHeaderSize the maximum size of the request line and headers in bytes
+ * @param maxRequestBodySize the maximum size of the request body in bytes, only limited by the NIO engine (64 MiB by
+ * default)
+ * @param requestTimeout the maximum time for receiving the request line and headers
+ * @param responseTimeout the maximum time for sending the response
+ * @param tcpNoDelay true to send small responses without waiting for a delayed ACK (TCP_NODELAY), null keeps the
+ * default of the engine (off for the JDK engine, on for the NIO engine)
+ */
+@RecordBuilder
+public record ConnectionConfig(
+        int backlog,
+        boolean keepAlive,
+        Duration idleTimeout,
+        int maxIdleConnections,
+        int maxRequestHeaderSize,
+        long maxRequestBodySize,
+        Duration requestTimeout,
+        Duration responseTimeout,
+        Boolean tcpNoDelay
+) {
+
+    public static ConnectionConfigBuilder builder() {
+        return new ConnectionConfigBuilder().keepAlive(true);
+    }
+
+    Map<String, String> systemProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        if (idleTimeout != null) {
+            properties.put("sun.net.httpserver.idleInterval", toSeconds(idleTimeout));
+        }
+        if (maxIdleConnections > 0) {
+            properties.put("sun.net.httpserver.maxIdleConnections", Integer.toString(maxIdleConnections));
+        }
+        if (maxRequestHeaderSize > 0) {
+            properties.put("sun.net.httpserver.maxReqHeaderSize", Integer.toString(maxRequestHeaderSize));
+        }
+        if (requestTimeout != null) {
+            properties.put("sun.net.httpserver.maxReqTime", toSeconds(requestTimeout));
+        }
+        if (responseTimeout != null) {
+            properties.put("sun.net.httpserver.maxRspTime", toSeconds(responseTimeout));
+        }
+        if (tcpNoDelay != null) {
+            properties.put("sun.net.httpserver.nodelay", tcpNoDelay.toString());
+        }
+        return properties;
+    }
+
+    private static String toSeconds(Duration duration) {
+        return Long.toString(Math.max(1, (duration.toMillis() + 999) / 1000)); // rounded up
+    }
+}
@@ -24,4 +24,15 @@ class ContentTypes {
             default -> null;
         };
     }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        return contentType.startsWith("text/")
+                || contentType.equals("application/json")
+                || contentType.equals("application/xml")
+                || contentType.equals("application/xhtml+xml")
+                || contentType.equals("image/svg+xml");
+    }
 }
@@ -0,0 +1,27 @@
+package com.github.phoswald.rstm.http.server;
+
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * A filter that dispatches with the context of the request, so that the values bound by the filters above it do not
+ * have to be copied into the request.
+ */
+interface ContextFilter extends HttpFilter {
+
+    HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception;
+
+    @Override
+    default HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        return handle(path, new RequestContext(request), config);
+    }
+
+    /**
+     * Passes the context to the given filter, or the request with the bound values if the filter does not take one.
+     */
+    static HttpResponse dispatch(HttpFilter filter, String path, RequestContext context, HttpServerConfig config) throws Exception {
+        return filter instanceof ContextFilter contextFilter
+                ? contextFilter.handle(path, context, config)
+                : filter.handle(path, context.boundRequest(), config);
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.phoswald.rstm.http.server;
+
+/**
+ * A started engine, which accepts connections until it is closed.
+ */
+interface EngineServer extends AutoCloseable {
+
+    @Override
+    void close();
+}
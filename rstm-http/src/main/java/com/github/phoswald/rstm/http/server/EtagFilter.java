@@ -0,0 +1,78 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.HttpEtags.createWeak;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * Adds weak entity tags to the responses to GET requests and answers matching If-None-Match headers with 304.
+ *
+ * The entity tag is taken from the response if the handler has set one, otherwise from the version function if there
+ * is one, otherwise it is computed from the body. With a version function, the wrapped filters are not called at all
+ * for a matching request, but only if it is routed directly to a handler: requests that would first reach another
+ * filter (such as a nested auth filter) or no filter at all are passed on. Streamed bodies are not buffered, so they are
+ * only tagged by the handler or the version.
+ */
+class EtagFilter implements HttpFilter {
+
+    private final ThrowingFunction<HttpRequest, String> version;
+    private final HttpFilter filter;
+    private final TrieFilter routes;
+
+    EtagFilter(ThrowingFunction<HttpRequest, String> version, HttpFilter filter) {
+        this(version, filter, new TrieFilter(filter));
+    }
+
+    private EtagFilter(ThrowingFunction<HttpRequest, String> version, HttpFilter filter, TrieFilter routes) {
+        this.version = version;
+        this.filter = filter;
+        this.routes = routes;
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        if (request.method() != HttpMethod.GET) {
+            return filter.handle(path, request, config);
+        }
+        String versionEtag = version == null ? null : createWeak(version.invoke(request));
+        if (versionEtag != null && request.matchesEtag(versionEtag) && routes.findRoute(path, request.method()) != null) {
+            return HttpResponse.builder().status(304).headers(Map.of("etag", versionEtag)).build();
+        }
+        HttpResponse response = filter.handle(path, request, config);
+        if (response == null || response.status() != 200) {
+            return response;
+        }
+        String etag = response.headers() == null ? null : response.headers().get("etag");
+        if (etag == null) {
+            etag = versionEtag != null ? versionEtag : response.body() != null ? createWeak(response.body()) : null;
+            if (etag == null) {
+                return response;
+            }
+            Map<String, String> headers = response.headers() == null ? new LinkedHashMap<>() : new LinkedHashMap<>(response.headers());
+            headers.put("etag", etag);
+            response = response.toBuilder().headers(headers).build();
+        }
+        if (!request.matchesEtag(etag)) {
+            return response;
+        }
+        Map<String, String> headers = new LinkedHashMap<>(response.headers());
+        headers.remove("content-encoding");
+        return response.toBuilder().status(304).contentType(null).headers(headers).body(null).bodyWriter(null).build();
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new EtagFilter(version, routes, routes); // the trie is the compiled subtree
+    }
+}
@@ -1,19 +1,40 @@
 package com.github.phoswald.rstm.http.server;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.phoswald.rstm.http.HttpBodyWriter;
 import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 
+/**
+ * Serves files, supporting conditional requests (RFC 9110, section 13) and single byte ranges (section 14).
+ */
 class FilesystemFilter implements HttpFilter {
 
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final long CHUNK_SIZE = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Path basePath;
 
@@ -37,12 +58,43 @@ class FilesystemFilter implements HttpFilter {
             logger.debug("Not found: file={}", file);
             return null;
         }
-        byte[] buffer = Files.readAllBytes(file);
-        logger.debug("Sending: file={}, size={}", file, buffer.length);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        Instant lastModified = attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified.getEpochSecond()) + "\"";
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("accept-ranges", "bytes");
+        headers.put("etag", etag);
+        headers.put("last-modified", HTTP_DATE.format(lastModified));
+
+        if (isNotModified(request, etag, lastModified)) {
+            logger.debug("Not modified: file={}", file);
+            return HttpResponse.builder().status(304).headers(headers).build();
+        }
+
+        int status = 200;
+        long offset = 0;
+        long length = size;
+        Optional<String> range = request.header("range");
+        if (range.isPresent() && request.header("if-range").map(etag::equals).orElse(true)) {
+            long[] bounds = parseRange(range.get(), size);
+            if (bounds == null) {
+                headers.put("content-range", "bytes */" + size);
+                return HttpResponse.builder().status(416).headers(headers).build();
+            }
+            if (bounds.length == 2) {
+                status = 206;
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                headers.put("content-range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+            }
+        }
+        logger.debug("Sending: file={}, offset={}, length={}", file, offset, length);
         return HttpResponse.builder()
-                .status(200)
+                .status(status)
                 .contentType(ContentTypes.getContentType(path))
-                .body(buffer)
+                .headers(headers)
+                .bodyWriter(new FileBodyWriter(file, offset, length))
                 .build();
     }
 
@@ -50,4 +102,74 @@ class FilesystemFilter implements HttpFilter {
     public List<RouteMetadata> createMetadata() {
         return List.of();
     }
+
+    private static boolean isNotModified(HttpRequest request, String etag, Instant lastModified) {
+        if (request.header("if-none-match").isPresent()) { // takes precedence over if-modified-since
+            return request.matchesEtag(etag);
+        }
+        Optional<String> ifModifiedSince = request.header("if-modified-since");
+        if (ifModifiedSince.isPresent()) {
+            try {
+                return !lastModified.isAfter(HTTP_DATE.parse(ifModifiedSince.get(), Instant::from));
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single byte range, returns null if unsatisfiable and an empty array if the full file should be sent.
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+            return new long[0]; // unsupported or multiple ranges: send full file
+        }
+        String spec = range.substring(6).trim();
+        int separator = spec.indexOf('-');
+        if (separator == -1) {
+            return new long[0];
+        }
+        try {
+            long first;
+            long last;
+            if (separator == 0) { // suffix range: last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, separator));
+                last = separator == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(separator + 1)), size - 1);
+            }
+            if (first > last || first >= size) {
+                return null;
+            }
+            return new long[] { first, last };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private record FileBodyWriter(Path file, long offset, long length) implements HttpBodyWriter {
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(output);
+                long position = offset;
+                long remaining = length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, Math.min(remaining, CHUNK_SIZE), target);
+                    if (transferred <= 0) {
+                        break; // file was truncated
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package com.github.phoswald.rstm.http.server;
+
+/**
+ * Determines which implementation of HTTP/1.1 accepts connections and parses requests.
+ */
+public sealed interface HttpEngine {
+
+    int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    int DEFAULT_POOLED_BUFFERS = 256;
+
+    /**
+     * Uses the HTTP server of the JDK (<code>com.sun.net.httpserver</code>), this is the default.
+     */
+    static HttpEngine jdk() {
+        return new Jdk();
+    }
+
+    /**
+     * Uses a selector with pooled direct buffers, requests are handled on virtual threads unless an executor is
+     * configured.
+     */
+    static HttpEngine nio() {
+        return new Nio(DEFAULT_BUFFER_SIZE, DEFAULT_POOLED_BUFFERS);
+    }
+
+    /**
+     * Uses a selector with pooled direct buffers of the given size, which also limits the size of the request headers.
+     */
+    static HttpEngine nio(int bufferSize, int pooledBuffers) {
+        return new Nio(bufferSize, pooledBuffers);
+    }
+
+    record Jdk() implements HttpEngine { }
+
+    record Nio(int bufferSize, int pooledBuffers) implements HttpEngine {
+
+        public Nio {
+            if (bufferSize < 1024 || bufferSize > 1024 * 1024) {
+                throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+            }
+            if (pooledBuffers < 0) {
+                throw new IllegalArgumentException("Invalid number of pooled buffers: " + pooledBuffers);
+            }
+        }
+    }
+}
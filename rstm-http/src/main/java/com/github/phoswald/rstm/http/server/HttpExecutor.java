@@ -0,0 +1,72 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Determines on which threads requests are handled.
+ */
+public sealed interface HttpExecutor {
+
+    /**
+     * Handles every request on a new virtual thread.
+     */
+    static HttpExecutor virtualThreads() {
+        return new VirtualThreads();
+    }
+
+    /**
+     * Handles requests on a fixed number of platform threads.
+     */
+    static HttpExecutor platformThreads(int threads) {
+        return new PlatformThreads(threads);
+    }
+
+    /**
+     * Handles requests on an executor that is owned (and shut down) by the caller.
+     */
+    static HttpExecutor custom(Executor executor) {
+        return new Custom(executor);
+    }
+
+    /**
+     * Creates the executor, returns an {@link ExecutorService} if it is owned by the server.
+     */
+    Executor create();
+
+    record VirtualThreads() implements HttpExecutor {
+
+        @Override
+        public Executor create() {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    record PlatformThreads(int threads) implements HttpExecutor {
+
+        public PlatformThreads {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Invalid number of threads: " + threads);
+            }
+        }
+
+        @Override
+        public Executor create() {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    record Custom(Executor executor) implements HttpExecutor {
+
+        public Custom {
+            Objects.requireNonNull(executor);
+        }
+
+        @Override
+        public Executor create() {
+            return executor::execute; // never shut down by the server
+        }
+    }
+}
@@ -10,4 +10,11 @@ public interface HttpFilter {
     HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception;
 
     List<RouteMetadata> createMetadata();
+
+    /**
+     * Returns an equivalent filter that is optimized for dispatching, called once when the server is started.
+     */
+    default HttpFilter compile() {
+        return this;
+    }
 }
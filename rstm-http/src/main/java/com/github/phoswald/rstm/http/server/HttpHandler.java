@@ -2,134 +2,119 @@ package com.github.phoswald.rstm.http.server;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.net.URLDecoder;
-import java.util.HashMap;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.phoswald.rstm.http.HttpHeaderValue;
 import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpParams;
 import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpRequestBody;
 import com.github.phoswald.rstm.http.HttpResponse;
-import com.sun.net.httpserver.HttpExchange;
 
-class HttpHandler implements com.sun.net.httpserver.HttpHandler {
+/**
+ * Creates requests from what an engine has parsed, passes them to the filters, and provides the response headers.
+ */
+class HttpHandler {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final HttpServerConfig config;
+    private final HttpFilter filter;
 
-    HttpHandler(HttpServerConfig config) {
+    HttpHandler(HttpServerConfig config, HttpFilter filter) {
         this.config = config;
+        this.filter = filter;
     }
 
-    @Override
-    public void handle(HttpExchange exchange) {
-        try {
-            logger.info("Handling {} {}", exchange.getRequestMethod(), exchange.getRequestURI());
-            HttpRequest request = readRequest(exchange);
-            HttpResponse response = processRequest(request);
-            writeResponse(exchange, response);
-        } catch (Exception e) {
-            logger.error("Handling {} {} failed:", exchange.getRequestMethod(), exchange.getRequestURI(), e);
-        } finally {
-            exchange.close();
-        }
+    /**
+     * Returns false if every connection must be closed after its response.
+     */
+    boolean keepAlive() {
+        return config.connection() == null || config.connection().keepAlive();
     }
 
-    private HttpRequest readRequest(HttpExchange exchange) throws IOException {
-        Map<String, String> pathParams = new HashMap<>();
-        Map<String, String> queryParams = new HashMap<>();
-        Map<String, String> formParams = new HashMap<>();
-        byte[] body = null;
-        decodeQueryString(queryParams, exchange.getRequestURI().getRawQuery());
-        String contentType = exchange.getRequestHeaders().getFirst("content-type");
-        if (contentType != null && HttpHeaderValue.parse(contentType).valueOnly()
-                .equalsIgnoreCase("application/x-www-form-urlencoded")) {
-            try (var input = exchange.getRequestBody()) {
-                var buffer = new ByteArrayOutputStream();
-                input.transferTo(buffer);
-                decodeQueryString(formParams, new String(buffer.toByteArray(), UTF_8));
-            }
-        } else {
-            try (var input = exchange.getRequestBody()) {
-                var buffer = new ByteArrayOutputStream();
-                input.transferTo(buffer);
-                body = buffer.toByteArray();
-            }
+    /**
+     * Creates a request, the names of the headers must be lower case unless the map is case insensitive.
+     *
+     * The parameters and cookies are decoded only if the filters access them, so requests without parameters do not
+     * allocate any maps.
+     */
+    HttpRequest createRequest(HttpMethod method, String path, String rawQuery, Map<String, String> headers, String remoteAddress, HttpRequestBody body) {
+        Map<String, String> formParams = Map.of();
+        if (isFormContentType(headers.get("content-type"))) {
+            HttpRequestBody formBody = body;
+            formParams = HttpParams.ofForm(() -> new String(formBody.bytes(), UTF_8));
+            body = null;
         }
         return HttpRequest.builder()
-                .method(HttpMethod.valueOf(exchange.getRequestMethod()))
-                .path(exchange.getRequestURI().getPath())
-                .pathParams(pathParams)
-                .queryParams(queryParams)
+                .method(method)
+                .path(path)
+                .pathParams(Map.of())
+                .queryParams(HttpParams.ofQuery(rawQuery))
                 .formParams(formParams)
-                .authorization(exchange.getRequestHeaders().getFirst("authorization"))
-                .session(getSessionCookie(exchange))
-                .body(body)
+                .headers(headers)
+                .remoteAddress(remoteAddress)
+                .authorization(headers.get("authorization"))
+                .session(HttpParams.findCookie(headers.get("cookie"), "session"))
+                .requestBody(body)
                 .build();
     }
 
-    private void decodeQueryString(Map<String, String> queryParams, String queryString) {
-        if (queryString != null) {
-            for (String queryParam : queryString.split("&")) {
-                int index = queryParam.indexOf("=");
-                if (index > 0) {
-                    queryParams.put(queryParam.substring(0, index),
-                            URLDecoder.decode(queryParam.substring(index + 1), UTF_8));
-                }
-            }
-        }
+    /**
+     * Returns the IP address of the client without resolving its host name.
+     */
+    static String getRemoteAddress(SocketAddress address) {
+        return address instanceof InetSocketAddress inetAddress && inetAddress.getAddress() != null
+                ? inetAddress.getAddress().getHostAddress()
+                : null;
     }
 
-    private String getSessionCookie(HttpExchange exchange) {
-        String cookieList = exchange.getRequestHeaders().getFirst("cookie");
-        if (cookieList != null) {
-            for (String cookiePair : cookieList.split("; ")) {
-                int separatorOffset = cookiePair.indexOf('=');
-                if (separatorOffset != -1) {
-                    String cookieName = cookiePair.substring(0, separatorOffset).trim();
-                    String cookieValue = cookiePair.substring(separatorOffset + 1).trim();
-                    if (cookieName.equals("session")) {
-                        return cookieValue;
-                    }
-                }
-            }
+    private static boolean isFormContentType(String contentType) {
+        if (contentType == null) {
+            return false;
         }
-        return null;
+        int end = contentType.indexOf(';');
+        return (end == -1 ? contentType : contentType.substring(0, end)).trim()
+                .equalsIgnoreCase("application/x-www-form-urlencoded");
     }
 
-    private HttpResponse processRequest(HttpRequest request) {
+    /**
+     * Passes the request to the filters, never returns null.
+     */
+    HttpResponse processRequest(HttpRequest request) {
+        logger.info("Handling {} {}", request.method(), request.path());
         try {
-            return config.filter().handle(request.path(), request, config);
+            HttpResponse response = filter.handle(request.path(), request, config);
+            return response == null ? HttpResponse.empty(404) : response;
         } catch (Exception e) {
             logger.warn("Processing {} {} failed:", request.method(), request.path(), e);
             return HttpResponse.empty(500);
         }
     }
 
-    private void writeResponse(HttpExchange exchange, HttpResponse response) throws IOException {
-        if (response == null) {
-            response = HttpResponse.empty(404);
-        }
+    /**
+     * Provides the response headers, except for the ones that describe the body and the connection.
+     */
+    void forEachHeader(HttpResponse response, BiConsumer<String, String> consumer) {
         if (response.contentType() != null) {
-            exchange.getResponseHeaders().add("content-type", response.contentType());
+            consumer.accept("content-type", response.contentType());
         }
         if (response.location() != null) {
-            exchange.getResponseHeaders().add("location", response.location());
+            consumer.accept("location", response.location());
         }
         if (response.session() != null) {
-            exchange.getResponseHeaders().add("set-cookie", "session=" + response.session() + "; path=/; httponly; samesite=strict");
+            consumer.accept("set-cookie", "session=" + response.session() + "; path=/; httponly; samesite=strict");
         }
-        int responseStatus = response.status() != 0 ? response.status() : 200;
-        if (response.body() != null) {
-            exchange.sendResponseHeaders(responseStatus, response.body().length);
-            exchange.getResponseBody().write(response.body());
-        } else {
-            exchange.sendResponseHeaders(responseStatus, -1 /* no response */);
+        if (response.headers() != null) {
+            response.headers().forEach(consumer);
         }
     }
+
+    static int getStatus(HttpResponse response) {
+        return response.status() != 0 ? response.status() : 200;
+    }
 }
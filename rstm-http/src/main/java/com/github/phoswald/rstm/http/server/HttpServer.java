@@ -2,7 +2,8 @@ package com.github.phoswald.rstm.http.server;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,24 +11,40 @@ import org.slf4j.LoggerFactory;
 public class HttpServer implements AutoCloseable {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final HttpServerConfig config;
-    private final com.sun.net.httpserver.HttpServer server;
+    private final Executor executor;
+    private final EngineServer server;
 
     public HttpServer(HttpServerConfig config) {
         try {
-            this.config = config;
-            this.server = com.sun.net.httpserver.HttpServer.create(new InetSocketAddress(config.httpPort()), 0);
-            this.server.createContext("/", new HttpHandler(this.config));
-            this.server.start();
-            logger.info("Started HTTP server: port={}", config.httpPort());
+            HttpEngine engine = config.engine() == null ? HttpEngine.jdk() : config.engine();
+            this.executor = createExecutor(config.executor(), engine);
+            HttpHandler handler = new HttpHandler(config, config.filter().compile());
+            this.server = switch (engine) {
+                case HttpEngine.Jdk _ -> new JdkEngineServer(config, handler, executor);
+                case HttpEngine.Nio nio -> new NioEngineServer(nio, config, handler, executor);
+            };
+            logger.info("Started HTTP server: port={}, engine={}, executor={}, connection={}", config.httpPort(), engine, config.executor(), config.connection());
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private static Executor createExecutor(HttpExecutor executor, HttpEngine engine) {
+        if (executor != null) {
+            return executor.create();
+        } else if (engine instanceof HttpEngine.Nio) {
+            return HttpExecutor.virtualThreads().create(); // the selector thread must not block
+        } else {
+            return null; // use the dispatcher thread
+        }
+    }
+
     @Override
     public void close() {
-        server.stop(0);
+        server.close();
+        if (executor instanceof ExecutorService executorService) {
+            executorService.close();
+        }
         logger.info("Stopped HTTP server");
     }
 }
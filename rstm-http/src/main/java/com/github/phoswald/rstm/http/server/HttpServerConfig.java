@@ -20,7 +20,10 @@ import com.github.phoswald.rstm.security.IdentityProvider;
 public record HttpServerConfig(
         int httpPort,
         HttpFilter filter,
-        IdentityProvider identityProvider
+        IdentityProvider identityProvider,
+        HttpExecutor executor,
+        ConnectionConfig connection,
+        HttpEngine engine
 ) {
     public static HttpServerConfigBuilder builder() {
         return new HttpServerConfigBuilder();
@@ -30,6 +33,10 @@ public record HttpServerConfig(
         return new ResourcesFilter(baseResource);
     }
 
+    public static HttpFilter resources(String baseResource, long cacheSize) {
+        return new ResourcesFilter(baseResource, cacheSize);
+    }
+
     public static HttpFilter filesystem(Path basePath) {
         return new FilesystemFilter(basePath);
     }
@@ -42,6 +49,38 @@ public record HttpServerConfig(
         return new AuthFilter(List.of(role), combine(filters));
     }
 
+    public static HttpFilter compress(HttpFilter... filters) {
+        return new CompressFilter(CompressConfig.builder().build(), combine(filters));
+    }
+
+    public static HttpFilter compress(CompressConfig compressConfig, HttpFilter... filters) {
+        return new CompressFilter(compressConfig, combine(filters));
+    }
+
+    public static HttpFilter cache(HttpFilter... filters) {
+        return new CacheFilter(CacheConfig.builder().build(), combine(filters));
+    }
+
+    public static HttpFilter cache(CacheConfig cacheConfig, HttpFilter... filters) {
+        return new CacheFilter(cacheConfig, combine(filters));
+    }
+
+    public static HttpFilter etag(HttpFilter... filters) {
+        return new EtagFilter(null, combine(filters));
+    }
+
+    public static HttpFilter etag(ThrowingFunction<HttpRequest, String> version, HttpFilter... filters) {
+        return new EtagFilter(version, combine(filters));
+    }
+
+    public static HttpFilter rateLimit(RateLimitConfig rateLimitConfig, HttpFilter... filters) {
+        return new RateLimitFilter(rateLimitConfig, combine(filters));
+    }
+
+    public static HttpFilter limitConcurrency(ConcurrencyLimitConfig limitConfig, HttpFilter... filters) {
+        return new ConcurrencyLimitFilter(limitConfig, combine(filters));
+    }
+
     public static HttpFilter login() {
         return new LoginFilter();
     }
@@ -0,0 +1,141 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpRequestBody;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Serves HTTP/1.1 with the HTTP server of the JDK.
+ */
+class JdkEngineServer implements EngineServer, com.sun.net.httpserver.HttpHandler {
+
+    private static boolean jdkServerConfigured; // the JDK server reads its system properties only once
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final HttpHandler handler;
+    private final com.sun.net.httpserver.HttpServer server;
+
+    JdkEngineServer(HttpServerConfig config, HttpHandler handler, Executor executor) throws IOException {
+        this.handler = handler;
+        applySystemProperties(config.connection() == null ? Map.of() : config.connection().systemProperties());
+        int backlog = config.connection() == null ? 0 : config.connection().backlog(); // 0: use the system default
+        this.server = com.sun.net.httpserver.HttpServer.create(new InetSocketAddress(config.httpPort()), backlog);
+        this.server.createContext("/", this);
+        this.server.setExecutor(executor); // null: use the dispatcher thread
+        this.server.start();
+    }
+
+    private void applySystemProperties(Map<String, String> properties) {
+        synchronized (JdkEngineServer.class) {
+            properties.forEach((name, value) -> {
+                if (!jdkServerConfigured) {
+                    System.setProperty(name, value);
+                } else if (!value.equals(System.getProperty(name))) {
+                    logger.warn("Ignoring {}={}, the JDK server has already been configured by an earlier server", name, value);
+                }
+            });
+            jdkServerConfigured = true;
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) {
+        try {
+            HttpRequest request = readRequest(exchange);
+            HttpResponse response = handler.processRequest(request);
+            writeResponse(exchange, response);
+        } catch (Exception e) {
+            logger.error("Handling {} {} failed:", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private HttpRequest readRequest(HttpExchange exchange) {
+        return handler.createRequest(
+                HttpMethod.valueOf(exchange.getRequestMethod()),
+                exchange.getRequestURI().getPath(),
+                exchange.getRequestURI().getRawQuery(),
+                new RequestHeaders(exchange.getRequestHeaders()),
+                HttpHandler.getRemoteAddress(exchange.getRemoteAddress()),
+                HttpRequestBody.of(exchange::getRequestBody)); // read lazily by the handler
+    }
+
+    private void writeResponse(HttpExchange exchange, HttpResponse response) throws IOException {
+        handler.forEachHeader(response, exchange.getResponseHeaders()::add);
+        if (!handler.keepAlive()) {
+            exchange.getResponseHeaders().set("connection", "close");
+        }
+        int responseStatus = HttpHandler.getStatus(response);
+        if (response.body() != null) {
+            exchange.sendResponseHeaders(responseStatus, response.body().length);
+            exchange.getResponseBody().write(response.body());
+        } else if (response.bodyWriter() != null) {
+            long length = response.bodyWriter().length();
+            exchange.sendResponseHeaders(responseStatus, length < 0 ? 0 /* chunked */ : length == 0 ? -1 /* no response */ : length);
+            response.bodyWriter().write(exchange.getResponseBody());
+        } else {
+            exchange.sendResponseHeaders(responseStatus, -1 /* no response */);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * A read-only view of the request headers with their first values, without copying them.
+     *
+     * Lookups are case insensitive, the entries are created with lower case names only if they are iterated.
+     */
+    private static final class RequestHeaders extends AbstractMap<String, String> {
+
+        private final Headers headers;
+        private Set<Entry<String, String>> entries;
+
+        RequestHeaders(Headers headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String name ? headers.getFirst(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return headers.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return headers.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            if (entries == null) {
+                Map<String, String> map = new LinkedHashMap<>();
+                headers.forEach((name, values) -> map.put(name.toLowerCase(), values.getFirst()));
+                entries = Collections.unmodifiableMap(map).entrySet();
+            }
+            return entries;
+        }
+    }
+}
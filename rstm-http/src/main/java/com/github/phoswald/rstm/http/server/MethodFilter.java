@@ -12,7 +12,7 @@ import com.github.phoswald.rstm.http.HttpMethod;
 import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 
-class MethodFilter implements HttpFilter {
+class MethodFilter implements ContextFilter {
 
     private static final Databinder BINDER = new Databinder();
 
@@ -31,9 +31,9 @@ class MethodFilter implements HttpFilter {
     }
 
     @Override
-    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
-        if (request.method() == method && path.isEmpty()) {
-            return handler.invoke(request);
+    public HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception {
+        if (context.request().method() == method && path.isEmpty()) {
+            return handler.invoke(context.boundRequest());
         } else {
             return null;
         }
@@ -44,6 +44,10 @@ class MethodFilter implements HttpFilter {
         return List.of(routeMetadata);
     }
 
+    HttpMethod method() {
+        return method;
+    }
+
     static HttpFilter of(HttpMethod method, ThrowingFunction<HttpRequest, HttpResponse> handler) {
         return new MethodFilter(method, handler);
     }
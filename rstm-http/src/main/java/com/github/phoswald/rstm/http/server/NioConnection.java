@@ -0,0 +1,893 @@
+package com.github.phoswald.rstm.http.server;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpRequestBody;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * A connection of the NIO engine, which parses requests and writes responses.
+ *
+ * While no request is processed, the connection is owned by the selector thread, which reads into a pooled buffer
+ * until a request is complete (the buffer is returned to the pool whenever it is empty). Then the connection is owned by
+ * a handler thread until the response has been written and the requests that were already read have been processed.
+ *
+ * A body with a length that exceeds the buffer is not read by the selector thread: the request is handed over after its
+ * head, and the handler thread reads the body as a stream from the channel, waiting for the selector if no data is
+ * available. Chunked bodies are read completely, growing the array as the data arrives.
+ *
+ * Pipelined requests are processed back-to-back: as long as the next request is already complete, the response is
+ * kept in its buffer, and the responses are finally written together with a single gathering write.
+ */
+class NioConnection {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MAX_BATCHED_RESPONSES = 16;
+    private static final int CHUNK_HEADER_SIZE = 8; // six hex digits and CRLF, a chunk never exceeds the buffer
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(ISO_8859_1);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ISO_8859_1);
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(ISO_8859_1);
+    private static final byte[] EMPTY = new byte[0];
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private static volatile CachedDate cachedDate = new CachedDate(0, "");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final NioEngineServer server;
+    private final SocketChannel channel;
+    private final String remoteAddress;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readyCondition = lock.newCondition();
+    private final ByteBuffer[] pending = new ByteBuffer[MAX_BATCHED_RESPONSES + 1];
+    private int pendingCount;
+    private SelectionKey key;
+    private ByteBuffer input;
+    private int scanned;
+    private long requestStart;
+    private long lastActivity;
+    private volatile boolean processing;
+    private volatile boolean closed;
+    private boolean ready;
+    private boolean continueRequired;
+
+    private HttpMethod method;
+    private String path;
+    private String rawQuery;
+    private Map<String, String> headers;
+    private boolean keepAlive;
+    private boolean chunked;
+    private long contentLength;
+    private byte[] body;
+    private int bodyLength;
+    private BodyInput bodyInput;
+    private ChunkState chunkState = ChunkState.SIZE;
+    private long chunkRemaining;
+
+    NioConnection(NioEngineServer server, SocketChannel channel) throws IOException {
+        this.server = server;
+        this.channel = channel;
+        this.remoteAddress = HttpHandler.getRemoteAddress(channel.getRemoteAddress());
+    }
+
+    void register(SelectionKey key) {
+        this.key = key;
+        this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Called on the selector thread if the channel is readable, or while a request is processed if the channel is
+     * writable for the response or readable for the body.
+     */
+    void onSelected() {
+        if (processing) {
+            onReady();
+        } else {
+            onReadable();
+        }
+    }
+
+    private void onReadable() {
+        try {
+            if (input == null) {
+                input = server.bufferPool().acquire();
+            }
+            int count = channel.read(input);
+            if (count < 0) {
+                close();
+                return;
+            }
+            long now = System.nanoTime();
+            lastActivity = now;
+            if (requestStart == 0 && method == null && input.position() > 0) {
+                requestStart = now;
+            }
+            if (parse()) {
+                processing = true;
+                key.interestOps(0);
+                server.dispatch(this::process);
+            } else {
+                sendContinueIfRequired();
+                if (input.position() == 0) {
+                    releaseInput();
+                }
+            }
+        } catch (RejectedRequestException e) {
+            reject(e.status);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void onReady() {
+        key.interestOps(0);
+        lock.lock();
+        try {
+            ready = true;
+            readyCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called on a handler thread, processes requests until none is left in the buffer.
+     */
+    private void process() {
+        HttpRequest request = null;
+        try {
+            boolean keepAliveResponse;
+            boolean nextRequest;
+            int rejectedStatus = 0;
+            do {
+                BodyInput streamedBody = bodyInput;
+                HttpRequestBody requestBody = streamedBody != null ? HttpRequestBody.of(() -> streamedBody) : HttpRequestBody.of(getBody());
+                request = server.handler().createRequest(method, path, rawQuery, headers, remoteAddress, requestBody);
+                HttpResponse response = server.handler().processRequest(request);
+                keepAliveResponse = keepAlive && server.handler().keepAlive() && (streamedBody == null || streamedBody.skipRest());
+                resetRequest();
+                try {
+                    nextRequest = keepAliveResponse && parse();
+                } catch (RejectedRequestException e) {
+                    nextRequest = false;
+                    rejectedStatus = e.status; // after the response to the current request
+                }
+                boolean deferred = nextRequest && bodyInput == null && pendingCount < MAX_BATCHED_RESPONSES;
+                writeResponse(response, keepAliveResponse, deferred);
+            } while (nextRequest);
+            if (rejectedStatus != 0) {
+                reject(rejectedStatus);
+            } else if (keepAliveResponse) {
+                sendContinueIfRequired();
+                server.execute(this::resume);
+            } else {
+                close();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (request != null && !closed) {
+                logger.error("Handling {} {} failed:", request.method(), request.path(), e);
+            }
+            close();
+        }
+    }
+
+    /**
+     * Called on the selector thread, when the handler thread has finished.
+     */
+    private void resume() {
+        processing = false;
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        lastActivity = now;
+        requestStart = method == null && input.position() > 0 ? now : 0;
+        if (input.position() == 0) {
+            releaseInput();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Called on the selector thread, closes the connection if it is idle for too long or too slow to send a request.
+     */
+    void closeIfExpired(long now, long idleTimeoutNanos, long requestTimeoutNanos) {
+        if (processing) {
+            return;
+        }
+        if (requestStart != 0 ? now - requestStart > requestTimeoutNanos : now - lastActivity > idleTimeoutNanos) {
+            logger.debug("Closing expired connection");
+            close();
+        }
+    }
+
+    /**
+     * Returns true if a complete request has been read.
+     */
+    private boolean parse() throws RejectedRequestException {
+        if (method == null) {
+            int end = findHeadEnd();
+            if (end < 0 || end > server.maxRequestHeaderSize()) {
+                if (input.position() >= server.maxRequestHeaderSize()) {
+                    throw new RejectedRequestException(431);
+                }
+                return false;
+            }
+            parseHead(end);
+            consume(end);
+            requestStart = 0;
+            continueRequired = input.position() == 0 && (chunked || contentLength > 0)
+                    && "100-continue".equalsIgnoreCase(headers.get("expect"));
+            if (!chunked && contentLength > input.capacity()) {
+                bodyInput = new BodyInput(contentLength);
+                return true; // the body is read by the handler thread
+            }
+        }
+        return chunked ? readChunkedBody() : readBody();
+    }
+
+    private int findHeadEnd() {
+        int limit = input.position();
+        for (int index = Math.max(scanned - 3, 0); index + 3 < limit; index++) {
+            if (input.get(index + 3) == '\n' && input.get(index + 2) == '\r'
+                    && input.get(index + 1) == '\n' && input.get(index) == '\r') {
+                return index + 4;
+            }
+        }
+        scanned = limit;
+        return -1;
+    }
+
+    private void parseHead(int end) throws RejectedRequestException {
+        byte[] bytes = new byte[end - 2];
+        input.get(0, bytes);
+        String head = new String(bytes, ISO_8859_1);
+        int lineEnd = head.indexOf("\r\n");
+        int space1 = head.indexOf(' ');
+        int space2 = head.lastIndexOf(' ', lineEnd);
+        if (space1 <= 0 || space2 <= space1) {
+            throw new RejectedRequestException(400);
+        }
+        String version = head.substring(space2 + 1, lineEnd);
+        if (!version.startsWith("HTTP/1.")) {
+            throw new RejectedRequestException(505);
+        }
+        method = parseMethod(head.substring(0, space1));
+        parseTarget(head.substring(space1 + 1, space2));
+        headers = new HashMap<>();
+        for (int pos = lineEnd + 2; pos < head.length(); ) {
+            int next = head.indexOf("\r\n", pos);
+            int colon = head.indexOf(':', pos);
+            if (colon <= pos || colon > next || head.charAt(pos) == ' ' || head.charAt(pos) == '\t' || head.charAt(colon - 1) == ' ') {
+                throw new RejectedRequestException(400);
+            }
+            headers.putIfAbsent(head.substring(pos, colon).toLowerCase(Locale.ROOT), head.substring(colon + 1, next).strip());
+            pos = next + 2;
+        }
+        String connection = headers.get("connection");
+        keepAlive = version.equals("HTTP/1.1") ? !containsToken(connection, "close") : containsToken(connection, "keep-alive");
+        String transferEncoding = headers.get("transfer-encoding");
+        String contentLengthHeader = headers.get("content-length");
+        if (transferEncoding != null) {
+            if (!transferEncoding.toLowerCase(Locale.ROOT).endsWith("chunked")) {
+                throw new RejectedRequestException(501);
+            }
+            chunked = true;
+            keepAlive &= contentLengthHeader == null; // ambiguous framing
+        } else if (contentLengthHeader != null) {
+            contentLength = parseContentLength(contentLengthHeader);
+            if (contentLength > server.maxRequestBodySize()) {
+                throw new RejectedRequestException(413);
+            }
+        }
+    }
+
+    private static HttpMethod parseMethod(String name) throws RejectedRequestException {
+        for (HttpMethod method : HttpMethod.values()) {
+            if (method.name().equals(name)) {
+                return method;
+            }
+        }
+        throw new RejectedRequestException(501);
+    }
+
+    private void parseTarget(String target) throws RejectedRequestException {
+        if (!target.startsWith("/")) {
+            int authority = target.startsWith("http://") || target.startsWith("https://") ? target.indexOf("//") + 2 : -1;
+            if (authority < 0) {
+                throw new RejectedRequestException(400);
+            }
+            int slash = target.indexOf('/', authority);
+            target = slash < 0 ? "/" : target.substring(slash); // absolute form, as sent to proxies
+        }
+        int question = target.indexOf('?');
+        String rawPath = question < 0 ? target : target.substring(0, question);
+        rawQuery = question < 0 ? null : target.substring(question + 1);
+        try {
+            path = rawPath.indexOf('%') < 0 ? rawPath : URI.create(rawPath).getPath();
+        } catch (IllegalArgumentException e) {
+            throw new RejectedRequestException(400);
+        }
+    }
+
+    private static long parseContentLength(String value) throws RejectedRequestException {
+        if (value.isEmpty() || value.length() > 18 || !value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new RejectedRequestException(400);
+        }
+        return Long.parseLong(value);
+    }
+
+    private static boolean containsToken(String value, String token) {
+        if (value != null) {
+            for (String element : value.split(",")) {
+                if (element.strip().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean readBody() {
+        if (body == null) {
+            body = contentLength == 0 ? EMPTY : new byte[(int) contentLength]; // not larger than the buffer
+        }
+        int count = Math.min(input.position(), body.length - bodyLength);
+        if (count > 0) {
+            input.get(0, body, bodyLength, count);
+            bodyLength += count;
+            consume(count);
+        }
+        return bodyLength == body.length;
+    }
+
+    private boolean readChunkedBody() throws RejectedRequestException {
+        if (body == null) {
+            body = EMPTY;
+        }
+        while (true) {
+            switch (chunkState) {
+                case SIZE -> {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    int extension = line.indexOf(';');
+                    chunkRemaining = parseChunkSize((extension < 0 ? line : line.substring(0, extension)).strip());
+                    if (bodyLength + chunkRemaining > Math.min(server.maxRequestBodySize(), MAX_ARRAY_SIZE)) {
+                        throw new RejectedRequestException(413);
+                    }
+                    chunkState = chunkRemaining == 0 ? ChunkState.TRAILER : ChunkState.DATA;
+                }
+                case DATA -> {
+                    int count = (int) Math.min(input.position(), chunkRemaining);
+                    if (body.length < bodyLength + count) { // grown as the data arrives, not as announced
+                        body = Arrays.copyOf(body, (int) Math.min(Math.max(body.length * 2L, bodyLength + count), MAX_ARRAY_SIZE));
+                    }
+                    input.get(0, body, bodyLength, count);
+                    bodyLength += count;
+                    chunkRemaining -= count;
+                    consume(count);
+                    if (chunkRemaining > 0) {
+                        return false;
+                    }
+                    chunkState = ChunkState.DATA_END;
+                }
+                case DATA_END -> {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isEmpty()) {
+                        throw new RejectedRequestException(400);
+                    }
+                    chunkState = ChunkState.SIZE;
+                }
+                case TRAILER -> {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (line.isEmpty()) {
+                        return true; // trailer fields are ignored
+                    }
+                }
+            }
+        }
+    }
+
+    private static long parseChunkSize(String value) throws RejectedRequestException {
+        try {
+            long size = value.length() > 8 ? -1 : Long.parseLong(value, 16);
+            if (size < 0) {
+                throw new RejectedRequestException(400);
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new RejectedRequestException(400);
+        }
+    }
+
+    private String readLine() throws RejectedRequestException {
+        int limit = input.position();
+        for (int index = 0; index < limit; index++) {
+            if (input.get(index) == '\n') {
+                byte[] bytes = new byte[index > 0 && input.get(index - 1) == '\r' ? index - 1 : index];
+                input.get(0, bytes);
+                consume(index + 1);
+                return new String(bytes, ISO_8859_1);
+            }
+        }
+        if (!input.hasRemaining()) {
+            throw new RejectedRequestException(400);
+        }
+        return null;
+    }
+
+    private void consume(int count) {
+        input.flip().position(count);
+        input.compact();
+        scanned = 0;
+    }
+
+    private byte[] getBody() {
+        return bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength);
+    }
+
+    private void resetRequest() {
+        method = null;
+        path = null;
+        rawQuery = null;
+        headers = null;
+        chunked = false;
+        contentLength = 0;
+        body = null;
+        bodyLength = 0;
+        bodyInput = null;
+        chunkState = ChunkState.SIZE;
+        continueRequired = false;
+    }
+
+    /**
+     * Writes the response, or keeps it in its buffer to be written together with the following responses.
+     */
+    private void writeResponse(HttpResponse response, boolean keepAliveResponse, boolean deferred) throws IOException {
+        ResponseOutput output = new ResponseOutput(server.bufferPool().acquire());
+        try {
+            int status = HttpHandler.getStatus(response);
+            StringBuilder head = new StringBuilder(256);
+            head.append("HTTP/1.1 ").append(status).append(' ').append(getReasonPhrase(status)).append("\r\n");
+            server.handler().forEachHeader(response, (name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+            head.append("date: ").append(formatDate()).append("\r\n");
+            long length = response.body() != null ? response.body().length
+                    : response.bodyWriter() != null ? response.bodyWriter().length()
+                    : 0;
+            if (length < 0) {
+                head.append("transfer-encoding: chunked\r\n");
+            } else if (length > 0 || (status >= 200 && status != 204 && status != 304)) {
+                head.append("content-length: ").append(length).append("\r\n");
+            }
+            if (!keepAliveResponse) {
+                head.append("connection: close\r\n");
+            }
+            head.append("\r\n");
+            output.writeHead(head, length);
+            if (response.body() != null) {
+                output.write(response.body());
+            } else if (response.bodyWriter() != null) {
+                response.bodyWriter().write(output);
+            }
+            output.finish(deferred);
+        } finally {
+            if (!output.queued) {
+                server.bufferPool().release(output.buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending buffers with gathering writes, and releases them except for the given one.
+     */
+    private void writePending(ByteBuffer retained) throws IOException {
+        int offset = 0;
+        while (offset < pendingCount) {
+            if (channel.write(pending, offset, pendingCount - offset) == 0) {
+                awaitReady(SelectionKey.OP_WRITE, server.responseTimeoutNanos());
+            }
+            while (offset < pendingCount && !pending[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+        releasePending(retained);
+    }
+
+    private void releasePending(ByteBuffer retained) {
+        for (int index = 0; index < pendingCount; index++) {
+            if (pending[index] != retained) {
+                server.bufferPool().release(pending[index]);
+            }
+            pending[index] = null;
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Waits until the selector reports that the channel is writable (for the response) or readable (for the body).
+     */
+    private void awaitReady(int interestOps, long timeoutNanos) throws IOException {
+        lock.lock();
+        try {
+            ready = false;
+            server.execute(() -> {
+                if (key.isValid()) {
+                    key.interestOps(interestOps);
+                }
+            });
+            long nanos = timeoutNanos;
+            while (!ready) {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                if (nanos <= 0) {
+                    throw new IOException(interestOps == SelectionKey.OP_WRITE ? "Timeout while writing response" : "Timeout while reading request body");
+                }
+                nanos = readyCondition.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sendContinueIfRequired() {
+        if (continueRequired) {
+            continueRequired = false;
+            writeQuietly(CONTINUE); // nothing is pending: the previous responses have been written
+        }
+    }
+
+    private void writeQuietly(byte[] bytes) {
+        try {
+            channel.write(ByteBuffer.wrap(bytes)); // small enough for the empty socket buffer
+        } catch (IOException e) {
+            logger.debug("Writing failed: {}", e.toString());
+        }
+    }
+
+    private void reject(int status) {
+        logger.debug("Rejecting request: status={}", status);
+        writeQuietly(("HTTP/1.1 " + status + " " + getReasonPhrase(status) + "\r\ncontent-length: 0\r\nconnection: close\r\n\r\n").getBytes(ISO_8859_1));
+        close();
+    }
+
+    private void releaseInput() {
+        if (input != null) {
+            server.bufferPool().release(input);
+            input = null;
+        }
+    }
+
+    /**
+     * Closes the connection, must be called by the thread that owns it.
+     */
+    void close() {
+        abort();
+        releaseInput();
+        releasePending(null);
+    }
+
+    /**
+     * Closes the connection without releasing the buffer, which may still be used by a handler thread.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        server.remove(this);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Closing failed: {}", e.toString());
+        }
+        lock.lock();
+        try {
+            readyCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String formatDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second() != second) {
+            date = new CachedDate(second, DATE_FORMAT.format(Instant.ofEpochSecond(second)));
+            cachedDate = date;
+        }
+        return date.text();
+    }
+
+    private static String getReasonPhrase(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 303 -> "See Other";
+            case 304 -> "Not Modified";
+            case 307 -> "Temporary Redirect";
+            case 308 -> "Permanent Redirect";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 413 -> "Content Too Large";
+            case 416 -> "Range Not Satisfiable";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "";
+        };
+    }
+
+    private enum ChunkState { SIZE, DATA, DATA_END, TRAILER }
+
+    private record CachedDate(long second, String text) { }
+
+    private static class RejectedRequestException extends Exception {
+
+        private final int status;
+
+        RejectedRequestException(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Reads a body with a known length on the handler thread, starting with the data that is already in the buffer.
+     *
+     * If the client expects it, the interim response is sent when the handler starts reading. A body that has not been
+     * read completely is skipped after the response if little data is left, otherwise the connection is closed.
+     */
+    private class BodyInput extends InputStream {
+
+        private long remaining;
+        private boolean started;
+
+        BodyInput(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            if (remaining == 0) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            if (!started) {
+                started = true;
+                sendContinueIfRequired(); // the previous responses have been written, they are not deferred
+            }
+            while (input.position() == 0) {
+                int count = channel.read(input);
+                if (count < 0) {
+                    throw new EOFException("Request body shorter than its length: missing=" + remaining);
+                } else if (count == 0) {
+                    awaitReady(SelectionKey.OP_READ, server.requestTimeoutNanos());
+                }
+            }
+            int count = (int) Math.min(Math.min(length, input.position()), remaining);
+            input.get(0, bytes, offset, count);
+            consume(count);
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(input.position(), remaining);
+        }
+
+        /**
+         * Skips the rest of the body if it fits into the buffer, returns false if the connection cannot be reused.
+         */
+        boolean skipRest() {
+            if (remaining > input.capacity() || (!started && continueRequired)) {
+                return false; // the client would have to send a body which nobody reads
+            }
+            try {
+                skipNBytes(remaining);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Writes the head and the body through a pooled direct buffer, either with a fixed length or in chunks.
+     *
+     * Chunks are framed in place: space for the size is reserved when a chunk is started and filled in when it ends.
+     */
+    private class ResponseOutput extends OutputStream {
+
+        private final ByteBuffer buffer;
+        private boolean queued;
+        private boolean chunked;
+        private long remaining;
+        private int chunkStart = -1;
+
+        ResponseOutput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void writeHead(CharSequence head, long length) throws IOException {
+            for (int index = 0; index < head.length(); index++) {
+                if (!buffer.hasRemaining()) {
+                    flushBuffer();
+                }
+                buffer.put((byte) head.charAt(index));
+            }
+            chunked = length < 0;
+            remaining = length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            consumeRemaining(1);
+            reserve();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            consumeRemaining(length);
+            while (length > 0) {
+                int count = Math.min(length, reserve());
+                buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (chunkStart >= 0) {
+                endChunk();
+            }
+            flushBuffer();
+        }
+
+        @Override
+        public void close() {
+            // finished by the connection
+        }
+
+        void finish(boolean deferred) throws IOException {
+            if (chunked) {
+                if (chunkStart >= 0) {
+                    endChunk();
+                }
+                if (buffer.remaining() < LAST_CHUNK.length) {
+                    flushBuffer();
+                }
+                buffer.put(LAST_CHUNK);
+            } else if (remaining > 0) {
+                throw new IOException("Response body shorter than its length: missing=" + remaining);
+            }
+            pending[pendingCount++] = buffer.flip();
+            queued = true;
+            if (!deferred) {
+                writePending(null);
+            }
+        }
+
+        private void consumeRemaining(int length) throws IOException {
+            if (!chunked) {
+                if (length > remaining) {
+                    throw new IOException("Response body longer than its length");
+                }
+                remaining -= length;
+            }
+        }
+
+        /**
+         * Makes room for at least one byte, returns the number of bytes that can be written.
+         */
+        private int reserve() throws IOException {
+            if (!chunked) {
+                if (!buffer.hasRemaining()) {
+                    flushBuffer();
+                }
+                return buffer.remaining();
+            }
+            if (chunkStart >= 0 && buffer.remaining() <= 2) {
+                endChunk();
+            }
+            if (chunkStart < 0) {
+                if (buffer.remaining() <= CHUNK_HEADER_SIZE + 2) {
+                    flushBuffer();
+                }
+                chunkStart = buffer.position();
+                buffer.position(chunkStart + CHUNK_HEADER_SIZE);
+            }
+            return buffer.remaining() - 2; // for the CRLF after the data
+        }
+
+        private void endChunk() {
+            int size = buffer.position() - chunkStart - CHUNK_HEADER_SIZE;
+            if (size == 0) {
+                buffer.position(chunkStart);
+            } else {
+                for (int index = CHUNK_HEADER_SIZE - 3; index >= 0; index--) {
+                    buffer.put(chunkStart + index, HEX_DIGITS[size & 0xF]);
+                    size >>>= 4;
+                }
+                buffer.put(chunkStart + CHUNK_HEADER_SIZE - 2, (byte) '\r');
+                buffer.put(chunkStart + CHUNK_HEADER_SIZE - 1, (byte) '\n');
+                buffer.put((byte) '\r').put((byte) '\n');
+            }
+            chunkStart = -1;
+        }
+
+        private void flushBuffer() throws IOException {
+            pending[pendingCount++] = buffer.flip(); // after the responses that are still pending
+            try {
+                writePending(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+}
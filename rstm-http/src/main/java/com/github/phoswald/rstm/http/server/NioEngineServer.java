@@ -0,0 +1,202 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves HTTP/1.1 with a single selector thread, which accepts connections and reads requests into pooled direct
+ * buffers.
+ *
+ * Complete requests are handed to the executor. The handler thread writes the response, waiting for the selector only
+ * if the socket buffer is full, and then returns the connection to the selector.
+ */
+class NioEngineServer implements EngineServer {
+
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final long DEFAULT_MAX_REQUEST_BODY_SIZE = 64 * 1024 * 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final HttpHandler handler;
+    private final Executor executor;
+    private final BufferPool bufferPool;
+    private final int maxRequestHeaderSize;
+    private final long maxRequestBodySize;
+    private final long idleTimeoutNanos;
+    private final long requestTimeoutNanos;
+    private final long responseTimeoutNanos;
+    private final boolean tcpNoDelay;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    NioEngineServer(HttpEngine.Nio engine, HttpServerConfig config, HttpHandler handler, Executor executor) throws IOException {
+        ConnectionConfig connection = config.connection() == null ? ConnectionConfig.builder().build() : config.connection();
+        this.handler = handler;
+        this.executor = executor;
+        this.bufferPool = new BufferPool(engine.bufferSize(), engine.pooledBuffers());
+        this.maxRequestHeaderSize = connection.maxRequestHeaderSize() > 0
+                ? Math.min(connection.maxRequestHeaderSize(), engine.bufferSize())
+                : engine.bufferSize();
+        this.maxRequestBodySize = connection.maxRequestBodySize() > 0
+                ? connection.maxRequestBodySize()
+                : DEFAULT_MAX_REQUEST_BODY_SIZE;
+        this.idleTimeoutNanos = toNanos(connection.idleTimeout(), DEFAULT_IDLE_TIMEOUT);
+        this.requestTimeoutNanos = toNanos(connection.requestTimeout(), DEFAULT_REQUEST_TIMEOUT);
+        this.responseTimeoutNanos = toNanos(connection.responseTimeout(), null);
+        this.tcpNoDelay = connection.tcpNoDelay() == null || connection.tcpNoDelay();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(config.httpPort()), connection.backlog()); // 0: use the system default
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.selectorThread = Thread.ofPlatform().name("rstm-http-selector").start(this::run);
+    }
+
+    private static long toNanos(Duration duration, Duration defaultDuration) {
+        Duration effectiveDuration = duration != null ? duration : defaultDuration;
+        return effectiveDuration == null ? Long.MAX_VALUE : effectiveDuration.toNanos();
+    }
+
+    HttpHandler handler() {
+        return handler;
+    }
+
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    int maxRequestHeaderSize() {
+        return maxRequestHeaderSize;
+    }
+
+    long maxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    long requestTimeoutNanos() {
+        return requestTimeoutNanos;
+    }
+
+    long responseTimeoutNanos() {
+        return responseTimeoutNanos;
+    }
+
+    /**
+     * Runs the task on the selector thread.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the task on a handler thread.
+     */
+    void dispatch(Runnable task) {
+        executor.execute(task);
+    }
+
+    void remove(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    private void run() {
+        long nextSweep = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(this::select, SWEEP_INTERVAL_MILLIS);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    sweep(now);
+                    nextSweep = now + SWEEP_INTERVAL_MILLIS * 1_000_000;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Selector failed:", e);
+        } finally {
+            connections.forEach(NioConnection::abort); // buffers may still be used by handler threads
+            closeQuietly();
+        }
+    }
+
+    private void select(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+        } else {
+            ((NioConnection) key.attachment()).onSelected();
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+                NioConnection connection = new NioConnection(this, channel);
+                connection.register(channel.register(selector, SelectionKey.OP_READ, connection));
+                connections.add(connection);
+            }
+        } catch (IOException e) {
+            logger.warn("Accepting connection failed:", e);
+        }
+    }
+
+    private void sweep(long now) {
+        for (NioConnection connection : connections) {
+            connection.closeIfExpired(now, idleTimeoutNanos, requestTimeoutNanos);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Closing selector failed:", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.phoswald.rstm.http.server;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+import com.github.phoswald.rstm.http.metrics.MetricsRegistry;
+
+/**
+ * Configures rate limiting with a token bucket per key, requests that find their bucket empty are rejected with 429.
+ *
+ * @param key what the requests are counted by
+ * @param permitsPerSecond the rate at which a bucket is refilled
+ * @param burst the capacity of a bucket, which is the number of requests that are accepted at once after a pause
+ * @param maxKeys the maximum number of buckets, full buckets are evicted for new keys, which are rejected if none is full
+ * @param name the value of the label that distinguishes the metrics of different rate limits
+ * @param metrics the registry to which the numbers of accepted and rejected requests are exported, or null
+ */
+@RecordBuilder
+public record RateLimitConfig(
+        RateLimitKey key,
+        double permitsPerSecond,
+        int burst,
+        int maxKeys,
+        String name,
+        MetricsRegistry metrics
+) {
+
+    static final int DEFAULT_MAX_KEYS = 10_000;
+
+    public static RateLimitConfigBuilder builder() {
+        return new RateLimitConfigBuilder()
+                .key(RateLimitKey.REMOTE_ADDRESS)
+                .burst(1)
+                .maxKeys(DEFAULT_MAX_KEYS)
+                .name("default");
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.metrics.MetricLabel;
+import com.github.phoswald.rstm.http.metrics.StripedCounter;
+
+/**
+ * Limits the rate of requests per client, principal or route template with lock-free token buckets.
+ *
+ * A bucket is a single atomic timestamp: the time at which it will be full again. Taking a token moves it forward by
+ * the refill interval, unless that would be more than a burst ahead of now (generic cell rate algorithm). Buckets that
+ * are full again carry no state, so only they are evicted if the table reaches its maximum size. If none of them is
+ * full, new keys are rejected until one is, so that a client cannot reset its limit by sending requests with many other
+ * keys. Requests that no filter of the subtree handles are passed on without taking a token, so they are never
+ * rejected here.
+ */
+class RateLimitFilter implements HttpFilter {
+
+    private static final String METRIC_NAME = "http_server_rate_limit_requests_total";
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final RateLimitConfig rateLimitConfig;
+    private final HttpFilter filter;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Map<String, AtomicLong> buckets;
+    private final AtomicBoolean evicting;
+    private final AtomicLong evictTime;
+    private final TrieFilter routes;
+    private final StripedCounter acceptedCounter;
+    private final StripedCounter rejectedCounter;
+
+    RateLimitFilter(RateLimitConfig rateLimitConfig, HttpFilter filter) {
+        if (rateLimitConfig.key() == null || !(rateLimitConfig.permitsPerSecond() > 0)
+                || rateLimitConfig.burst() < 1 || rateLimitConfig.maxKeys() < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + rateLimitConfig);
+        }
+        this.rateLimitConfig = rateLimitConfig;
+        this.filter = filter;
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000 / rateLimitConfig.permitsPerSecond()));
+        this.burstNanos = intervalNanos * rateLimitConfig.burst();
+        this.buckets = new ConcurrentHashMap<>();
+        this.evicting = new AtomicBoolean();
+        this.evictTime = new AtomicLong(System.nanoTime());
+        this.routes = new TrieFilter(filter);
+        if (rateLimitConfig.metrics() != null) {
+            MetricLabel limiter = new MetricLabel("limiter", rateLimitConfig.name());
+            this.acceptedCounter = rateLimitConfig.metrics().registerStripedCounter(METRIC_NAME, limiter, new MetricLabel("result", "accepted"));
+            this.rejectedCounter = rateLimitConfig.metrics().registerStripedCounter(METRIC_NAME, limiter, new MetricLabel("result", "rejected"));
+        } else {
+            this.acceptedCounter = null;
+            this.rejectedCounter = null;
+        }
+    }
+
+    private RateLimitFilter(RateLimitFilter other) {
+        this.rateLimitConfig = other.rateLimitConfig;
+        this.filter = other.routes; // the trie is the compiled subtree
+        this.intervalNanos = other.intervalNanos;
+        this.burstNanos = other.burstNanos;
+        this.buckets = other.buckets; // shares the buckets and the counters
+        this.evicting = other.evicting;
+        this.evictTime = other.evictTime;
+        this.routes = other.routes;
+        this.acceptedCounter = other.acceptedCounter;
+        this.rejectedCounter = other.rejectedCounter;
+    }
+
+    @Override
+    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+        if (!routes.accepts(path, request.method())) {
+            return null;
+        }
+        String key = getKey(path, request);
+        long waitNanos = key == null ? 0 : acquire(key, System.nanoTime());
+        if (waitNanos > 0) {
+            if (rejectedCounter != null) {
+                rejectedCounter.increment();
+            }
+            long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+            return HttpResponse.builder()
+                    .status(429)
+                    .headers(Map.of("retry-after", Long.toString(retryAfterSeconds)))
+                    .build();
+        }
+        if (acceptedCounter != null) {
+            acceptedCounter.increment();
+        }
+        return filter.handle(path, request, config);
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return new RateLimitFilter(this);
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    private String getKey(String path, HttpRequest request) {
+        return switch (rateLimitConfig.key()) {
+            case REMOTE_ADDRESS -> getRemoteAddress(request);
+            case PRINCIPAL -> request.principal() != null
+                    ? request.principal().name()
+                    : "anonymous@" + getRemoteAddress(request); // never the name of a principal
+            case ROUTE -> routes.findRoute(path, request.method());
+        };
+    }
+
+    private static String getRemoteAddress(HttpRequest request) {
+        return request.remoteAddress() == null ? UNKNOWN_ADDRESS : request.remoteAddress();
+    }
+
+    /**
+     * Takes a token from the bucket of the key, returns zero if successful, or the time until a token is available.
+     */
+    long acquire(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= rateLimitConfig.maxKeys()) {
+                long waitNanos = evict(now);
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, _ -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullTime = bucket.get();
+            long nextFullTime = (fullTime - now > 0 ? fullTime : now) + intervalNanos;
+            long waitNanos = nextFullTime - now - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(fullTime, nextFullTime)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Removes the full buckets, returns zero if there is room for a new one, or the time until a bucket will be full.
+     */
+    private long evict(long now) {
+        long waitNanos = evictTime.get() - now;
+        if (waitNanos > 0) {
+            return waitNanos; // no bucket is full before then, so there is no need to scan the table
+        }
+        if (!evicting.compareAndSet(false, true)) {
+            return 0; // another thread is evicting, the table may grow slightly meanwhile
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+            if (buckets.size() < rateLimitConfig.maxKeys()) {
+                return 0;
+            }
+            long fullTime = now + burstNanos; // no bucket is further ahead than a burst
+            for (AtomicLong bucket : buckets.values()) {
+                long bucketFullTime = bucket.get();
+                if (bucketFullTime - fullTime < 0) {
+                    fullTime = bucketFullTime;
+                }
+            }
+            evictTime.set(fullTime);
+            return Math.max(1, fullTime - now);
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
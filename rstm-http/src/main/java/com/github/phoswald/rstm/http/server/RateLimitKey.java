@@ -0,0 +1,22 @@
+package com.github.phoswald.rstm.http.server;
+
+/**
+ * Determines by what the requests are counted by a rate limit.
+ */
+public enum RateLimitKey {
+
+    /**
+     * The IP address of the client.
+     */
+    REMOTE_ADDRESS,
+
+    /**
+     * The name of the principal, or the IP address of the client for anonymous requests.
+     */
+    PRINCIPAL,
+
+    /**
+     * The route template, all clients share the rate of a route. Requests that match no route are not limited.
+     */
+    ROUTE
+}
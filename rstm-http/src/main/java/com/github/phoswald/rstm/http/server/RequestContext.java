@@ -0,0 +1,152 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.security.Principal;
+
+/**
+ * The path parameters and the principal that the filters bind while they dispatch a request.
+ *
+ * The filters bind the values in place and undo them if their child filters do not match, so nested routes do not
+ * copy the request. The request is copied once, with the bound values, when it is passed to a handler or to a filter
+ * that does not take a context.
+ */
+final class RequestContext {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final HttpRequest request;
+    private String[] names;
+    private String[] values;
+    private int size;
+    private Principal principal;
+
+    RequestContext(HttpRequest request) {
+        this.request = request;
+        this.principal = request.principal();
+    }
+
+    /**
+     * Returns the request as it was passed to the filters, without the values bound since.
+     */
+    HttpRequest request() {
+        return request;
+    }
+
+    /**
+     * Returns the request with the bound values, which is a copy only if values have been bound.
+     */
+    HttpRequest boundRequest() {
+        if (size == 0 && principal == request.principal()) {
+            return request;
+        }
+        return request.toBuilder().pathParams(copyPathParams()).principal(principal).build();
+    }
+
+    Principal principal() {
+        return principal;
+    }
+
+    void bindPrincipal(Principal principal) {
+        this.principal = principal;
+    }
+
+    /**
+     * Returns a mark that can be passed to {@link #reset(int)} to unbind the path parameters bound after it.
+     */
+    int mark() {
+        return size;
+    }
+
+    /**
+     * Binds a path parameter, which hides a parameter with the same name that was bound before.
+     */
+    void bindPathParam(String name, String value) {
+        if (names == null) {
+            names = new String[INITIAL_CAPACITY];
+            values = new String[INITIAL_CAPACITY];
+        } else if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+    }
+
+    void reset(int mark) {
+        while (size > mark) {
+            size--;
+            names[size] = null;
+            values[size] = null;
+        }
+    }
+
+    private Map<String, String> copyPathParams() {
+        if (size == 0) {
+            return request.pathParams();
+        }
+        Map<String, String> pathParams = request.pathParams() == null ? Map.of() : request.pathParams();
+        int offset = pathParams.size();
+        String[] copiedNames = new String[offset + size];
+        String[] copiedValues = new String[offset + size];
+        int index = 0;
+        for (Map.Entry<String, String> entry : pathParams.entrySet()) {
+            copiedNames[index] = entry.getKey();
+            copiedValues[index] = entry.getValue();
+            index++;
+        }
+        System.arraycopy(names, 0, copiedNames, offset, size);
+        System.arraycopy(values, 0, copiedValues, offset, size);
+        return new PathParams(copiedNames, copiedValues);
+    }
+
+    /**
+     * An immutable map of path parameters, where a later parameter hides an earlier one with the same name.
+     */
+    private static class PathParams extends AbstractMap<String, String> {
+
+        private final String[] names;
+        private final String[] values;
+
+        PathParams(String[] names, String[] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        @Override
+        public String get(Object key) {
+            for (int index = names.length - 1; index >= 0; index--) {
+                if (names[index].equals(key)) {
+                    return values[index];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return names.length == 0;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            Map<String, String> snapshot = new LinkedHashMap<>();
+            for (int index = 0; index < names.length; index++) {
+                snapshot.put(names[index], values[index]);
+            }
+            return Collections.unmodifiableMap(snapshot).entrySet();
+        }
+    }
+}
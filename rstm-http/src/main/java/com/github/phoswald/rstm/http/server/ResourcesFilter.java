@@ -1,24 +1,48 @@
 package com.github.phoswald.rstm.http.server;
 
+import static com.github.phoswald.rstm.http.HttpEtags.createStrong;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.phoswald.rstm.http.HttpHeaderValue;
 import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 
+/**
+ * Serves classpath resources, which are cached in memory since they never change while the server is running.
+ *
+ * The compressed variant of a resource has its own strong entity tag, derived from the one of the uncompressed variant.
+ */
 class ResourcesFilter implements HttpFilter {
 
+    static final long DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static final CachedResource MISSING = new CachedResource(null, null, null, null);
+    private static final int ENTRY_OVERHEAD = 128;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final String basePath;
+    private final long cacheSize;
+    private final LinkedHashMap<String, CachedResource> cache = new LinkedHashMap<>(16, 0.75f, true /* LRU */);
+    private long cacheUsage;
 
     ResourcesFilter(String basePath) {
+        this(basePath, DEFAULT_CACHE_SIZE);
+    }
+
+    ResourcesFilter(String basePath, long cacheSize) {
         this.basePath = Objects.requireNonNull(basePath);
+        this.cacheSize = cacheSize;
     }
 
     @Override
@@ -33,24 +57,114 @@ class ResourcesFilter implements HttpFilter {
             path = path.substring(1);
         }
         String resource = basePath + path;
-        try (InputStream input = getClass().getResourceAsStream(resource)) {
-            if (input == null) {
-                logger.debug("Not found: resource={}", resource);
-                return null;
-            }
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            input.transferTo(buffer);
-            logger.debug("Sending: resource={}, size={}", resource, buffer.size());
-            return HttpResponse.builder()
-                    .status(200)
-                    .contentType(ContentTypes.getContentType(path))
-                    .body(buffer.toByteArray())
-                    .build();
+        CachedResource cached = lookup(resource, path);
+        if (cached == MISSING) {
+            logger.debug("Not found: resource={}", resource);
+            return null;
+        }
+        boolean gzip = cached.gzipBytes() != null && acceptsGzip(request);
+        String etag = gzip ? cached.gzipEtag() : cached.etag();
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("etag", etag);
+        if (cached.gzipBytes() != null) {
+            headers.put("vary", "accept-encoding");
+        }
+        if (request.matchesEtag(etag)) {
+            logger.debug("Not modified: resource={}", resource);
+            return HttpResponse.builder().status(304).headers(headers).build();
         }
+        byte[] body = cached.bytes();
+        if (gzip) {
+            headers.put("content-encoding", "gzip");
+            body = cached.gzipBytes();
+        }
+        logger.debug("Sending: resource={}, size={}", resource, body.length);
+        return HttpResponse.builder()
+                .status(200)
+                .contentType(cached.contentType())
+                .headers(headers)
+                .body(body)
+                .build();
     }
 
     @Override
     public List<RouteMetadata> createMetadata() {
         return List.of();
     }
+
+    boolean isCached(String resource) {
+        synchronized (cache) {
+            return cache.containsKey(resource);
+        }
+    }
+
+    private CachedResource lookup(String resource, String path) throws IOException {
+        synchronized (cache) {
+            CachedResource cached = cache.get(resource);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CachedResource loaded = load(resource, path); // concurrent misses may load twice, which is harmless
+        synchronized (cache) {
+            if (cache.putIfAbsent(resource, loaded) == null) {
+                cacheUsage += loaded.weight();
+                var iterator = cache.values().iterator();
+                while (cacheUsage > cacheSize && iterator.hasNext()) {
+                    CachedResource evicted = iterator.next();
+                    if (evicted != loaded) {
+                        cacheUsage -= evicted.weight();
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private CachedResource load(String resource, String path) throws IOException {
+        try (InputStream input = getClass().getResourceAsStream(resource)) {
+            if (input == null) {
+                return MISSING;
+            }
+            byte[] bytes = input.readAllBytes();
+            String contentType = ContentTypes.getContentType(path);
+            return new CachedResource(bytes, compress(bytes, contentType), contentType, createStrong(bytes));
+        }
+    }
+
+    private static byte[] compress(byte[] bytes, String contentType) throws IOException {
+        if (!ContentTypes.isCompressible(contentType)) {
+            return null;
+        }
+        var buffer = new ByteArrayOutputStream(bytes.length / 2);
+        try (var output = new GZIPOutputStream(buffer)) {
+            output.write(bytes);
+        }
+        return buffer.size() < bytes.length * 9 / 10 ? buffer.toByteArray() : null;
+    }
+
+    private static boolean acceptsGzip(HttpRequest request) {
+        String acceptEncoding = request.header("accept-encoding").orElse(null);
+        if (acceptEncoding != null) {
+            for (String coding : acceptEncoding.split(",")) {
+                HttpHeaderValue value = HttpHeaderValue.parse(coding);
+                if (value.valueOnly().equalsIgnoreCase("gzip")) {
+                    return !value.parameter("q").map(q -> q.matches("0(\\.0*)?")).orElse(false);
+                }
+            }
+        }
+        return false;
+    }
+
+    private record CachedResource(byte[] bytes, byte[] gzipBytes, String contentType, String etag) {
+
+        String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        long weight() {
+            return ENTRY_OVERHEAD + (bytes == null ? 0 : bytes.length) + (gzipBytes == null ? 0 : gzipBytes.length);
+        }
+    }
 }
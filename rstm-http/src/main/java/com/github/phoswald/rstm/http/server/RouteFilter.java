@@ -2,52 +2,56 @@ package com.github.phoswald.rstm.http.server;
 
 import static java.util.function.Predicate.not;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 
-class RouteFilter implements HttpFilter {
+class RouteFilter implements ContextFilter {
 
     private final String route;
     private final List<String> routeParts;
+    private final String[] paramNames; // null for literal parts
     private final boolean routeIsDir;
     private final HttpFilter filter;
 
     RouteFilter(String route, HttpFilter filter) {
         this.route = route;
         this.routeParts = parseParts(route);
+        this.paramNames = routeParts.stream().map(part -> isParam(part) ? getParamName(part) : null).toArray(String[]::new);
         this.routeIsDir = isDir(route);
         this.filter = filter;
     }
 
     @Override
-    public HttpResponse handle(String path, HttpRequest request, HttpServerConfig config) throws Exception {
+    public HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception {
         List<String> pathParts = parseParts(path);
         boolean pathIsDir = isDir(path);
-        Map<String, String> params = new HashMap<>(request.pathParams());
-        for (String routePart : routeParts) {
-            if (pathParts.isEmpty()) {
+        if (pathParts.size() < routeParts.size()) {
+            return null;
+        }
+        boolean hasParams = false;
+        for (int index = 0; index < routeParts.size(); index++) {
+            if (paramNames[index] != null) {
+                hasParams = true;
+            } else if (!routeParts.get(index).equals(pathParts.get(index))) {
                 return null;
             }
-            String pathPart = pathParts.getFirst();
-            if (isParam(routePart)) {
-                params.put(getParamName(routePart), pathPart);
-            } else {
-                if (!routePart.equals(pathPart)) {
-                    return null;
-                }
+        }
+        if (!hasParams) {
+            return ContextFilter.dispatch(filter, joinParts(pathParts.subList(routeParts.size(), pathParts.size()), pathIsDir), context, config);
+        }
+        int mark = context.mark();
+        for (int index = 0; index < routeParts.size(); index++) {
+            if (paramNames[index] != null) {
+                context.bindPathParam(paramNames[index], pathParts.get(index));
             }
-            pathParts.removeFirst();
         }
-        if (params.size() > request.pathParams().size()) {
-            request = request.toBuilder().pathParams(params).build();
+        HttpResponse response = ContextFilter.dispatch(filter, joinParts(pathParts.subList(routeParts.size(), pathParts.size()), pathIsDir), context, config);
+        if (response == null) {
+            context.reset(mark); // the request continues with the next filter
         }
-        return filter.handle(joinParts(pathParts, pathIsDir), request, config);
+        return response;
     }
 
     @Override
@@ -61,21 +65,38 @@ class RouteFilter implements HttpFilter {
                 .toList();
     }
 
+    @Override
+    public HttpFilter compile() {
+        return new TrieFilter(this);
+    }
+
+    String route() {
+        return route;
+    }
+
+    List<String> routeParts() {
+        return routeParts;
+    }
+
+    HttpFilter filter() {
+        return filter;
+    }
+
     private static List<String> parseParts(String path) {
         return Stream.of(path.split("/"))
                 .filter(not(String::isEmpty))
-                .collect(Collectors.toList()); // cannot use toList(), must be modifiable!
+                .toList();
     }
 
     private static boolean isDir(String path) {
         return path.endsWith("/");
     }
 
-    private static boolean isParam(String routePart) {
+    static boolean isParam(String routePart) {
         return routePart.startsWith("{") && routePart.endsWith("}");
     }
 
-    private static String getParamName(String routePart) {
+    static String getParamName(String routePart) {
         return routePart.substring(1, routePart.length() - 1);
     }
 
@@ -0,0 +1,222 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * Dispatches requests for a tree of route and combine filters by walking a trie of path segments.
+ *
+ * Behaves exactly like the tree it is compiled from: all filters that match a prefix of the path are tried in the
+ * order in which they are declared, the first non-null response wins. The same trie also tells wrapping filters whether
+ * a request is routed to the tree at all, so that they do not count or answer requests that fall through.
+ */
+class TrieFilter implements ContextFilter {
+
+    private static final Comparator<Match> ORDER = Comparator.comparingInt(match -> match.entry().order());
+
+    private final HttpFilter filter;
+    private final Node root = new Node();
+    private int count;
+
+    TrieFilter(HttpFilter filter) {
+        this.filter = filter;
+        add(root, new String[0], "", filter);
+    }
+
+    @Override
+    public HttpResponse handle(String path, RequestContext context, HttpServerConfig config) throws Exception {
+        String[] pathParts = parseParts(path);
+        boolean pathIsDir = path.endsWith("/");
+        List<Match> matches = new ArrayList<>();
+        collect(root, pathParts, 0, pathIsDir, matches);
+        if (matches.size() > 1) {
+            matches.sort(ORDER);
+        }
+        for (Match match : matches) {
+            String[] paramNames = match.entry().paramNames();
+            int mark = -1;
+            for (int index = 0; index < paramNames.length; index++) {
+                if (paramNames[index] != null) {
+                    if (mark == -1) {
+                        mark = context.mark();
+                    }
+                    context.bindPathParam(paramNames[index], pathParts[index]);
+                }
+            }
+            HttpResponse response = ContextFilter.dispatch(match.entry().filter(), joinParts(pathParts, match.depth(), pathIsDir), context, config);
+            if (response != null) {
+                return response;
+            }
+            if (mark != -1) {
+                context.reset(mark); // the request continues with the next match
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<RouteMetadata> createMetadata() {
+        return filter.createMetadata();
+    }
+
+    @Override
+    public HttpFilter compile() {
+        return this;
+    }
+
+    /**
+     * Returns whether a filter of the tree may handle the request: a method filter matches the path and the method, or
+     * another filter (such as resources or a nested auth filter) matches a prefix of the path.
+     */
+    boolean accepts(String path, HttpMethod method) {
+        return find(path, method) != null;
+    }
+
+    /**
+     * Returns the route template if the first filter that may handle the request is a method filter, otherwise null.
+     */
+    String findRoute(String path, HttpMethod method) {
+        Entry entry = find(path, method);
+        return entry == null || !(entry.filter() instanceof MethodFilter) ? null : entry.route().isEmpty() ? "/" : entry.route();
+    }
+
+    private Entry find(String path, HttpMethod method) {
+        return find(root, parseParts(path), 0, path.endsWith("/"), method);
+    }
+
+    private void add(Node node, String[] paramNames, String route, HttpFilter filter) {
+        switch (filter) {
+            case CombineFilter combineFilter -> {
+                for (HttpFilter childFilter : combineFilter.filters()) {
+                    add(node, paramNames, route, childFilter);
+                }
+            }
+            case RouteFilter routeFilter -> {
+                List<String> routeParts = routeFilter.routeParts();
+                String[] childParamNames = Arrays.copyOf(paramNames, paramNames.length + routeParts.size());
+                for (int index = 0; index < routeParts.size(); index++) {
+                    String routePart = routeParts.get(index);
+                    if (RouteFilter.isParam(routePart)) {
+                        childParamNames[paramNames.length + index] = RouteFilter.getParamName(routePart);
+                        node = node.param();
+                    } else {
+                        node = node.literal(routePart);
+                    }
+                }
+                add(node, childParamNames, route + routeFilter.route(), routeFilter.filter());
+            }
+            case MethodFilter methodFilter -> node.exact.add(new Entry(count++, paramNames, route, methodFilter));
+            default -> node.prefix.add(new Entry(count++, paramNames, route, filter.compile()));
+        }
+    }
+
+    /**
+     * Finds the first declared entry that matches, which is the first one collect() would return.
+     */
+    private static Entry find(Node node, String[] pathParts, int depth, boolean pathIsDir, HttpMethod method) {
+        Entry result = node.prefix.isEmpty() ? null : node.prefix.getFirst();
+        if (depth == pathParts.length) {
+            if (!pathIsDir) {
+                for (Entry entry : node.exact) {
+                    if (((MethodFilter) entry.filter()).method() == method) {
+                        return first(result, entry);
+                    }
+                }
+            }
+            return result;
+        }
+        Node literalNode = node.literals.get(pathParts[depth]);
+        if (literalNode != null) {
+            result = first(result, find(literalNode, pathParts, depth + 1, pathIsDir, method));
+        }
+        if (node.param != null) {
+            result = first(result, find(node.param, pathParts, depth + 1, pathIsDir, method));
+        }
+        return result;
+    }
+
+    private static Entry first(Entry entry1, Entry entry2) {
+        return entry1 == null || (entry2 != null && entry2.order() < entry1.order()) ? entry2 : entry1;
+    }
+
+    private static void collect(Node node, String[] pathParts, int depth, boolean pathIsDir, List<Match> matches) {
+        for (Entry entry : node.prefix) {
+            matches.add(new Match(entry, depth));
+        }
+        if (depth == pathParts.length) {
+            if (!pathIsDir) { // method filters only match the empty path
+                for (Entry entry : node.exact) {
+                    matches.add(new Match(entry, depth));
+                }
+            }
+            return;
+        }
+        Node literalNode = node.literals.get(pathParts[depth]);
+        if (literalNode != null) {
+            collect(literalNode, pathParts, depth + 1, pathIsDir, matches);
+        }
+        if (node.param != null) {
+            collect(node.param, pathParts, depth + 1, pathIsDir, matches);
+        }
+    }
+
+    private static String[] parseParts(String path) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('/', start)) != -1) {
+            if (end > start) {
+                parts.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        if (start < path.length()) {
+            parts.add(path.substring(start));
+        }
+        return parts.toArray(String[]::new);
+    }
+
+    private static String joinParts(String[] parts, int offset, boolean isDir) {
+        if (offset == parts.length) {
+            return isDir ? "/" : "";
+        }
+        var builder = new StringBuilder(parts[offset]);
+        for (int index = offset + 1; index < parts.length; index++) {
+            builder.append('/').append(parts[index]);
+        }
+        if (isDir) {
+            builder.append('/');
+        }
+        return builder.toString();
+    }
+
+    private static class Node {
+
+        final Map<String, Node> literals = new HashMap<>();
+        final List<Entry> prefix = new ArrayList<>();
+        final List<Entry> exact = new ArrayList<>();
+        Node param;
+
+        Node literal(String part) {
+            return literals.computeIfAbsent(part, _ -> new Node());
+        }
+
+        Node param() {
+            if (param == null) {
+                param = new Node();
+            }
+            return param;
+        }
+    }
+
+    private record Entry(int order, String[] paramNames, String route, HttpFilter filter) { }
+
+    private record Match(Entry entry, int depth) { }
+}
@@ -0,0 +1,35 @@
+package com.github.phoswald.rstm.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class HttpEtagsTest {
+
+    @Test
+    void createStrong_bytes_digest() {
+        String etag = HttpEtags.createStrong("text".getBytes(UTF_8));
+        assertThat(etag, matchesPattern("\"[0-9a-f]{32}\""));
+        assertEquals(etag, HttpEtags.createStrong("text".getBytes(UTF_8)));
+        assertNotEquals(etag, HttpEtags.createStrong("txet".getBytes(UTF_8)));
+    }
+
+    @Test
+    void createWeak_bytes_checksums() {
+        String etag = HttpEtags.createWeak("text".getBytes(UTF_8));
+        assertThat(etag, matchesPattern("W/\"4-[0-9a-f]+\""));
+        assertNotEquals(etag, HttpEtags.createWeak("txet".getBytes(UTF_8)));
+    }
+
+    @Test
+    void createWeak_version_quoted() {
+        assertEquals("W/\"1.0-beta\"", HttpEtags.createWeak("1.0-beta"));
+        assertThat(HttpEtags.createWeak("a \"b\""), matchesPattern("W/\"5-[0-9a-f]+\""));
+        assertNull(HttpEtags.createWeak((String) null));
+    }
+}
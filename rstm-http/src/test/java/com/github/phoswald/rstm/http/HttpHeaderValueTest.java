@@ -29,4 +29,12 @@ class HttpHeaderValueTest {
         assertEquals("utf-8", result.parameter("charset").get());
         assertEquals(1, result.parameters().size());
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip;q=0", "gzip; q=0", "gzip ;q = 0 "})
+    void parameter_singleCharacterName_success(String value) {
+        HttpHeaderValue result = HttpHeaderValue.parse(value);
+        assertEquals("gzip", result.valueOnly());
+        assertEquals("0", result.parameter("q").get());
+    }
 }
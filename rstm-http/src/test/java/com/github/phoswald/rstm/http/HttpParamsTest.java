@@ -0,0 +1,56 @@
+package com.github.phoswald.rstm.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class HttpParamsTest {
+
+    @Test
+    void ofQuery_valid_decoded() {
+        Map<String, String> params = HttpParams.ofQuery("q1=v%C3%A4&q2=x+y&invalid&=x&q1=again");
+        assertEquals(Map.of("q1", "again", "q2", "x y"), params);
+        assertEquals("x y", params.get("q2"));
+    }
+
+    @Test
+    void ofQuery_missing_sharedEmptyMap() {
+        assertSame(Map.of(), HttpParams.ofQuery(null));
+        assertSame(Map.of(), HttpParams.ofQuery(""));
+    }
+
+    @Test
+    void ofForm_accessed_decodedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, String> params = HttpParams.ofForm(() -> {
+            calls.incrementAndGet();
+            return "f1=v1&f2=v%262";
+        });
+        assertEquals(0, calls.get());
+        assertEquals("v1", params.get("f1"));
+        assertEquals("v&2", params.get("f2"));
+        assertEquals(2, params.size());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void ofCookies_valid_firstWins() {
+        assertEquals(Map.of("a", "1", "session", "xyz"), HttpParams.ofCookies("a=1; session = xyz ; a=2; invalid"));
+        assertSame(Map.of(), HttpParams.ofCookies(null));
+    }
+
+    @Test
+    void findCookie_valid_found() {
+        assertEquals("xyz", HttpParams.findCookie("a=1; session = xyz ; b=2", "session"));
+        assertEquals("2", HttpParams.findCookie("a=1; session = xyz ; b=2", "b"));
+        assertEquals("", HttpParams.findCookie("session=", "session"));
+        assertNull(HttpParams.findCookie("a=1; mysession=xyz; sessions=xyz", "session"));
+        assertNull(HttpParams.findCookie("invalid; a=b", "invalid"));
+        assertNull(HttpParams.findCookie(null, "session"));
+    }
+}
@@ -2,6 +2,9 @@ package com.github.phoswald.rstm.http;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Map;
+import java.util.Optional;
+
 import org.junit.jupiter.api.Test;
 
 class HttpRequestTest {
@@ -53,4 +56,13 @@ class HttpRequestTest {
         assertEquals("../baz", HttpRequest.builder().path("/foo/bar/").build().relativizePath("/foo/baz"));
         assertEquals("../baz/", HttpRequest.builder().path("/foo/bar/").build().relativizePath("/foo/baz/"));
     }
+
+    @Test
+    void cookies() {
+        HttpRequest request = HttpRequest.builder().headers(Map.of("cookie", "a=1; session=xyz")).build();
+        assertEquals(Optional.of("xyz"), request.cookie("session"));
+        assertEquals(Optional.empty(), request.cookie("b"));
+        assertEquals(Map.of("a", "1", "session", "xyz"), request.cookies());
+        assertEquals(Map.of(), HttpRequest.builder().headers(Map.of()).build().cookies());
+    }
 }
@@ -1,8 +1,19 @@
 package com.github.phoswald.rstm.http.health;
 
 import static io.restassured.RestAssured.when;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +23,10 @@ import com.github.phoswald.rstm.http.server.HttpServerConfig;
 
 class HealthCheckRegistryTest {
 
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final Duration WAIT = Duration.ofSeconds(10); // only reached if a test fails
+
     private final HealthCheckRegistry testee = new HealthCheckRegistry();
 
     private final HttpServerConfig config = HttpServerConfig.builder()
@@ -75,4 +90,161 @@ class HealthCheckRegistryTest {
                 .body("status", equalTo("DOWN"))
                 .body("checks[0].status", equalTo("DOWN"));
     }
+
+    @Test
+    void checkHealth_parallel_concurrent() {
+        var started = new CountDownLatch(4);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().parallel(true).build())) {
+            for (int index = 0; index < 4; index++) {
+                testee.registerCheck("waiting" + index, () -> {
+                    started.countDown();
+                    return started.await(WAIT.toMillis(), MILLISECONDS); // only if all checks run at the same time
+                });
+            }
+            HealthCheckResponse response = testee.checkHealth();
+            assertEquals(HealthCheckStatus.UP, response.status());
+            assertEquals(4, response.checks().size());
+        }
+    }
+
+    @Test
+    void checkHealth_timeout_down() {
+        var release = new CountDownLatch(1);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().parallel(true).timeout(TIMEOUT).build())) {
+            testee.registerCheck("fast", () -> true);
+            testee.registerCheck("hanging", () -> awaitUninterruptibly(release));
+            HealthCheckResponse response = testee.checkHealth();
+            assertEquals(HealthCheckStatus.DOWN, response.status());
+            assertEquals(HealthCheckStatus.UP, response.checks().get(0).status());
+            assertEquals(HealthCheckStatus.DOWN, response.checks().get(1).status());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void checkHealth_timeout_interrupted() throws Exception {
+        var interrupted = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().timeout(TIMEOUT).build())) {
+            testee.registerCheck("hanging", () -> {
+                try {
+                    return release.await(WAIT.toMillis(), MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            });
+            assertEquals(HealthCheckStatus.DOWN, testee.checkHealth().status());
+            assertTrue(interrupted.await(WAIT.toMillis(), MILLISECONDS));
+        }
+    }
+
+    @Test
+    void checkHealth_stillRunning_notStartedAgain() throws Exception {
+        var invocations = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().timeout(TIMEOUT).build())) {
+            testee.registerCheck("hanging", () -> invocations.incrementAndGet() > 0 && awaitUninterruptibly(release));
+            for (int index = 0; index < 3; index++) {
+                assertEquals(HealthCheckStatus.DOWN, testee.checkHealth().status());
+            }
+            assertEquals(1, invocations.get());
+
+            release.countDown();
+            awaitCondition(() -> testee.checkHealth().status() == HealthCheckStatus.UP); // once the first check returned
+            assertEquals(2, invocations.get());
+        }
+    }
+
+    @Test
+    void checkHealth_ttl_cached() {
+        var clock = new AtomicLong();
+        var invocations = new AtomicInteger();
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().ttl(TTL).build(), clock::get, null)) {
+            testee.registerCheck("counting", () -> invocations.incrementAndGet() > 0);
+            assertEquals(HealthCheckStatus.UP, testee.checkHealth().status());
+            clock.addAndGet(TTL.toNanos() - 1);
+            assertEquals(HealthCheckStatus.UP, testee.checkHealth().status());
+            assertEquals(1, invocations.get());
+
+            clock.addAndGet(1);
+            assertEquals(HealthCheckStatus.UP, testee.checkHealth().status());
+            assertEquals(2, invocations.get());
+        }
+    }
+
+    @Test
+    void checkHealth_background_latestSnapshot() throws Exception {
+        var clock = new AtomicLong();
+        var invocations = new AtomicInteger();
+        var up = new AtomicBoolean(true);
+        var release = new CountDownLatch(1);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().background(true).ttl(TTL).build(), clock::get, null)) {
+            testee.registerCheck("slow", () -> invocations.incrementAndGet() > 0 && awaitUninterruptibly(release) && up.get());
+            assertEquals(HealthCheckStatus.DOWN, testee.checkHealth().status()); // not checked yet
+
+            release.countDown();
+            awaitCondition(() -> testee.checkHealth().status() == HealthCheckStatus.UP);
+            for (int index = 0; index < 100; index++) {
+                testee.checkHealth();
+            }
+            assertEquals(1, invocations.get());
+
+            up.set(false);
+            clock.addAndGet(TTL.toNanos());
+            testee.refresh();
+            awaitCondition(() -> testee.checkHealth().status() == HealthCheckStatus.DOWN);
+            assertEquals(2, invocations.get());
+        }
+    }
+
+    @Test
+    void checkHealth_backgroundHanging_down() throws Exception {
+        var clock = new AtomicLong();
+        var invocations = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        try (var testee = new HealthCheckRegistry(HealthCheckConfig.builder().background(true).ttl(TTL).build(), clock::get, null)) {
+            testee.registerCheck("hangingLater", () -> invocations.incrementAndGet() == 1 || awaitUninterruptibly(release));
+            awaitCondition(() -> testee.checkHealth().status() == HealthCheckStatus.UP);
+
+            testee.refresh();
+            awaitCondition(() -> invocations.get() == 2);
+            clock.addAndGet(TTL.toNanos() * 2); // expired for another TTL
+            assertEquals(HealthCheckStatus.UP, testee.checkHealth().status());
+
+            clock.addAndGet(1);
+            assertEquals(HealthCheckStatus.DOWN, testee.checkHealth().status()); // the refresh hangs
+            assertEquals(2, invocations.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void create_backgroundWithoutTtl_exception() {
+        assertThrows(IllegalArgumentException.class, () -> new HealthCheckRegistry(HealthCheckConfig.builder().background(true).build()));
+    }
+
+    /**
+     * Waits until a check that runs on another thread has had its effect, the time limit only ends a failing test.
+     */
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() - deadline < 0, "Condition not met");
+            Thread.sleep(1);
+        }
+    }
+
+    private static boolean awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return true;
+            } catch (InterruptedException e) {
+                // like a blocking call that does not react to interrupts
+            }
+        }
+    }
 }
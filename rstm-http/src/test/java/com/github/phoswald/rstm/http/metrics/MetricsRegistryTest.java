@@ -1,18 +1,48 @@
 package com.github.phoswald.rstm.http.metrics;
 
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.delete;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
 import static io.restassured.RestAssured.when;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.server.HttpFilter;
 import com.github.phoswald.rstm.http.server.HttpServer;
 import com.github.phoswald.rstm.http.server.HttpServerConfig;
 
 class MetricsRegistryTest {
 
+    private static final int THREADS = 8;
+    private static final int INCREMENTS = 1_000_000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
     private final MetricsRegistry testee = new MetricsRegistry();
 
     private final HttpServerConfig config = HttpServerConfig.builder()
@@ -45,6 +75,45 @@ class MetricsRegistryTest {
                         """));
     }
 
+    @Test
+    void getMetrics_streaming_success() {
+        server.close();
+        var streamingConfig = HttpServerConfig.builder()
+                .httpPort(8080)
+                .filter(testee.createRoute(true))
+                .build();
+        try (var _ = new HttpServer(streamingConfig)) {
+            testee.registerGauge("sample_gauge", () -> 42.5, new MetricLabel("sample_label", "sample_value"));
+            testee.registerStripedCounter("sample_counter").add(3);
+
+            when()
+                    .get("/metrics")
+                    .then()
+                    .statusCode(200)
+                    .contentType("text/plain")
+                    .body(equalTo("""
+                            sample_counter 3
+                            sample_gauge{sample_label="sample_value"} 42.5
+                            """));
+        }
+    }
+
+    @Test
+    void writeMetrics_manySeries_sameAsFormatted() throws Exception {
+        var expected = new StringBuilder();
+        for (int index = 0; index < 1000; index++) {
+            var label = new MetricLabel("label", "value" + index + "x".repeat(index % 20 == 0 ? 10_000 : 0));
+            testee.registerCounter("counter", label).value().set(index * 1_000_003L - 500_000_000L);
+            expected.append("counter{").append("label=\"").append(label.value()).append("\"} ").append(index * 1_000_003L - 500_000_000L).append('\n');
+        }
+        var output = new ByteArrayOutputStream();
+        testee.writeMetrics(output);
+
+        String expectedSorted = expected.toString().lines().sorted().collect(Collectors.joining("\n", "", "\n"));
+        assertEquals(expectedSorted, output.toString(UTF_8).lines().sorted().collect(Collectors.joining("\n", "", "\n")));
+        assertEquals(output.toString(UTF_8), testee.collectMetrics());
+    }
+
     @Test
     void register_invalid_exception() {
         // null or invalid names or values
@@ -73,6 +142,132 @@ class MetricsRegistryTest {
                 """));
     }
 
+    @Test
+    void collectMetrics_stripedCounters_success() {
+        StripedCounter counter = testee.registerStripedCounter("sample_counter");
+        counter.increment();
+        counter.add(2);
+        SummingCounter summingCounter = testee.registerSummingCounter("sample_sum");
+        summingCounter.add(0.25);
+        summingCounter.add(1);
+
+        assertThat(testee.collectMetrics(), equalTo("""
+                sample_counter 3
+                sample_sum 1.25
+                """));
+    }
+
+    @Test
+    void labels_counterFamily_childCached() {
+        CounterFamily family = testee.registerCounterFamily("requests_total", "method", "status");
+        StripedCounter child = family.labels("GET", "200");
+        child.increment();
+        family.labels("GET", "200").increment();
+        family.labels("GET", "404").increment();
+        family.labels("POST", "200").add(5);
+
+        assertSame(child, family.labels("GET", "200"));
+        assertThrows(IllegalArgumentException.class, () -> family.labels("GET"));
+        assertThrows(IllegalArgumentException.class, () -> family.labels("GET", null));
+        assertThrows(IllegalArgumentException.class, () -> testee.registerCounterFamily("name"));
+        assertThrows(IllegalArgumentException.class, () -> testee.registerCounterFamily("name", "bad-name"));
+        assertThat(testee.collectMetrics(), equalTo("""
+                requests_total{method="GET",status="200"} 2
+                requests_total{method="GET",status="404"} 1
+                requests_total{method="POST",status="200"} 5
+                """));
+    }
+
+    @Test
+    void increment_contended_allCounted() throws Exception {
+        StripedCounter stripedCounter = testee.registerStripedCounter("striped_counter");
+        measure(stripedCounter::increment);
+        measure(() -> stripedCounter.add(2));
+        assertEquals(3L * THREADS * INCREMENTS, (long) stripedCounter.calculateValue());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void increment_contended_stripedCounterComparedToAtomic() throws Exception {
+        Counter atomicCounter = testee.registerCounter("atomic_counter");
+        StripedCounter stripedCounter = testee.registerStripedCounter("striped_counter");
+        measure(() -> atomicCounter.value().incrementAndGet()); // warm-up
+        measure(stripedCounter::increment);
+        long atomicNanos = measure(() -> atomicCounter.value().incrementAndGet());
+        long stripedNanos = measure(stripedCounter::increment);
+        logger.info("Incrementing {}x{} times: atomic={}us, striped={}us", THREADS, INCREMENTS, atomicNanos / 1000, stripedNanos / 1000);
+        assertEquals(4L * THREADS * INCREMENTS, atomicCounter.value().get() + (long) stripedCounter.calculateValue());
+        if (Runtime.getRuntime().availableProcessors() >= 4) { // without parallelism there is no contention
+            assertThat(stripedNanos, lessThan(atomicNanos));
+        }
+    }
+
+    @Test
+    void collectMetrics_histogram_success() {
+        Histogram histogram = testee.registerHistogram("sample_histogram", new double[] { 0.1, 1, 10 }, new MetricLabel("sample_label", "sample_value"));
+        histogram.observe(0.05);
+        histogram.observe(1);
+        histogram.observe(2.5);
+        histogram.observe(100);
+
+        assertThat(testee.collectMetrics(), equalTo("""
+                sample_histogram_bucket{sample_label="sample_value",le="0.1"} 1
+                sample_histogram_bucket{sample_label="sample_value",le="1"} 2
+                sample_histogram_bucket{sample_label="sample_value",le="10"} 3
+                sample_histogram_bucket{sample_label="sample_value",le="+Inf"} 4
+                sample_histogram_sum{sample_label="sample_value"} 103.55
+                sample_histogram_count{sample_label="sample_value"} 4
+                """));
+    }
+
+    @Test
+    void registerHistogram_invalid_exception() {
+        assertThrows(IllegalArgumentException.class, () -> testee.registerHistogram("name", new double[] { 1, 1 }));
+        assertThrows(IllegalArgumentException.class, () -> testee.registerHistogram("name", new double[] { 1, Double.POSITIVE_INFINITY }));
+        assertThrows(IllegalArgumentException.class, () -> testee.registerHistogram("name", new MetricLabel("le", "1")));
+    }
+
+    @Test
+    void observe_manyValues_allocationFree() {
+        Histogram histogram = testee.registerHistogram("name");
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 100_000; i++) { // warm-up
+            histogram.observeNanos(i * 1000L);
+        }
+        long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.observeNanos(i * 1000L);
+        }
+        allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - allocatedBytes;
+        assertThat(allocatedBytes, lessThan(10_000L));
+        assertEquals(200_000, histogram.count());
+    }
+
+    @Test
+    void instrument_routes_histogramsByRouteTemplate() throws Exception {
+        HttpFilter filter = testee.instrument(
+                route("/items", get(_ -> HttpResponse.text(200, "list"))),
+                route("/items/{id}",
+                        get(_ -> HttpResponse.text(200, "item")),
+                        delete(_ -> HttpResponse.empty(204))),
+                route("/failing", get(_ -> { throw new IllegalStateException(); })))
+                .compile();
+        handle(filter, HttpMethod.GET, "/items");
+        handle(filter, HttpMethod.GET, "/items/1");
+        handle(filter, HttpMethod.GET, "/items/2");
+        handle(filter, HttpMethod.DELETE, "/items/2");
+        handle(filter, HttpMethod.GET, "/undefined");
+        assertThrows(IllegalStateException.class, () -> handle(filter, HttpMethod.GET, "/failing"));
+
+        String metrics = testee.collectMetrics();
+        assertThat(metrics, containsString("http_server_requests_seconds_count{method=\"GET\",route=\"/items\",status=\"2xx\"} 1\n"));
+        assertThat(metrics, containsString("http_server_requests_seconds_count{method=\"GET\",route=\"/items/{id}\",status=\"2xx\"} 2\n"));
+        assertThat(metrics, containsString("http_server_requests_seconds_count{method=\"DELETE\",route=\"/items/{id}\",status=\"2xx\"} 1\n"));
+        assertThat(metrics, containsString("http_server_requests_seconds_count{method=\"GET\",route=\"unmatched\",status=\"4xx\"} 1\n"));
+        assertThat(metrics, containsString("http_server_requests_seconds_count{method=\"GET\",route=\"/failing\",status=\"5xx\"} 1\n"));
+        assertThat(metrics, containsString("http_server_requests_seconds_bucket{method=\"GET\",route=\"/items/{id}\",status=\"2xx\",le=\"+Inf\"} 2\n"));
+    }
+
     @Test
     void collectMetrics_exception_caught() {
         testee.registerGauge("name1", () -> 10);
@@ -87,4 +282,35 @@ class MetricsRegistryTest {
                 name3 30
                 """));
     }
+
+    private static void handle(HttpFilter filter, HttpMethod method, String path) throws Exception {
+        HttpRequest request = HttpRequest.builder()
+                .method(method)
+                .path(path)
+                .pathParams(Map.of())
+                .build();
+        filter.handle(path, request, null);
+    }
+
+    private static long measure(Runnable increment) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            var startSignal = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    for (int index = 0; index < INCREMENTS; index++) {
+                        increment.run();
+                    }
+                    return null;
+                }));
+            }
+            long start = System.nanoTime();
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        }
+    }
 }
@@ -17,16 +17,23 @@ import static com.github.phoswald.rstm.http.server.HttpServerConfig.resources;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
 import static io.restassured.RestAssured.when;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
 import com.github.phoswald.rstm.http.HttpResponse;
 import com.github.phoswald.rstm.http.server.HttpFilter;
 import com.github.phoswald.rstm.http.server.HttpServer;
@@ -66,6 +73,27 @@ class OpenApiFilterTest {
         }
     }
 
+    @Test
+    void handle_openApi_cachedWithEtag() throws Exception {
+        HttpResponse response = testee.handle("/openapi", createRequest(Map.of()), serverConfig);
+        assertEquals(200, response.status());
+        assertEquals("application/json", response.contentType());
+        assertNotNull(response.headers().get("etag"));
+        assertArrayEquals(Files.readAllBytes(Path.of("src/test/resources/openapi.json")), response.body());
+        assertSame(response.body(), testee.handle("/openapi", createRequest(Map.of()), serverConfig).body());
+    }
+
+    @Test
+    void handle_openApiIfNoneMatch_notModified() throws Exception {
+        String etag = testee.handle("/openapi", createRequest(Map.of()), serverConfig).headers().get("etag");
+        HttpResponse response = testee.handle("/openapi", createRequest(Map.of("if-none-match", etag)), serverConfig);
+        assertEquals(304, response.status());
+        assertEquals(etag, response.headers().get("etag"));
+        assertNull(response.body());
+        response = testee.handle("/openapi", createRequest(Map.of("if-none-match", "\"other\"")), serverConfig);
+        assertEquals(200, response.status());
+    }
+
     @Test
     void getOpenApiUi_valid_success() {
         try(HttpServer _ = new HttpServer(serverConfig)) {
@@ -78,6 +106,14 @@ class OpenApiFilterTest {
             }
     }
 
+    private static HttpRequest createRequest(Map<String, String> headers) {
+        return HttpRequest.builder()
+                .method(HttpMethod.GET)
+                .pathParams(Map.of())
+                .headers(headers)
+                .build();
+    }
+
     private HttpFilter getRoutes() {
         return combine(
                 resources("/html/"),
@@ -0,0 +1,164 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createPrincipal;
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createRequest;
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.handle;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.cache;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.post;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class CacheFilterTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void cleanup() {
+        blocked.countDown();
+        executor.close();
+    }
+
+    @Test
+    void handle_repeated_cached() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().build());
+
+        HttpResponse response = handle(testee, createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "1")).build());
+        assertEquals("text 1", new String(response.body(), UTF_8));
+        assertSame(response, handle(testee, createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "1")).build()));
+        assertEquals(1, calls.get());
+
+        assertEquals("text 2", new String(handle(testee, createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "2")).build()).body(), UTF_8));
+        assertEquals(2, calls.get());
+        assertEquals(2, testee.size());
+    }
+
+    @Test
+    void handle_expired_reloaded() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().ttl(Duration.ofMillis(50)).build());
+
+        handle(testee, createRequest(HttpMethod.GET, "/text").build());
+        Thread.sleep(100);
+        handle(testee, createRequest(HttpMethod.GET, "/text").build());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void handle_maxSize_leastRecentlyUsedEvicted() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().maxSize(700).build()); // two entries
+        HttpRequest request1 = createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "1")).build();
+        HttpRequest request2 = createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "2")).build();
+        HttpRequest request3 = createRequest(HttpMethod.GET, "/text").queryParams(Map.of("q", "3")).build();
+
+        handle(testee, request1);
+        handle(testee, request2);
+        handle(testee, request1);
+        handle(testee, request3); // evicts request2
+        assertEquals(2, testee.size());
+        assertEquals(3, calls.get());
+
+        handle(testee, request1);
+        assertEquals(3, calls.get());
+        handle(testee, request2);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void handle_notCacheable_notCached() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().build());
+
+        for (int index = 0; index < 2; index++) {
+            handle(testee, createRequest(HttpMethod.POST, "/text").build());
+            handle(testee, createRequest(HttpMethod.GET, "/error").build());
+            handle(testee, createRequest(HttpMethod.GET, "/private").build());
+        }
+        assertEquals(6, calls.get());
+        assertEquals(0, testee.size());
+    }
+
+    @Test
+    void handle_principal_notCachedByDefault() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().build());
+
+        handle(testee, createRequest(HttpMethod.GET, "/text").principal(createPrincipal("alice")).build());
+        handle(testee, createRequest(HttpMethod.GET, "/text").principal(createPrincipal("alice")).build());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void handle_principal_cachedPerPrincipal() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().principals(true).build());
+
+        assertEquals("text alice", new String(handle(testee, createRequest(HttpMethod.GET, "/text").principal(createPrincipal("alice")).build()).body(), UTF_8));
+        assertEquals("text bob", new String(handle(testee, createRequest(HttpMethod.GET, "/text").principal(createPrincipal("bob")).build()).body(), UTF_8));
+        assertEquals("text alice", new String(handle(testee, createRequest(HttpMethod.GET, "/text").principal(createPrincipal("alice")).build()).body(), UTF_8));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void handle_concurrentMisses_coalesced() throws Exception {
+        CacheFilter testee = createFilter(CacheConfig.builder().build());
+
+        List<Future<HttpResponse>> futures = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            futures.add(executor.submit(() -> handle(testee, createRequest(HttpMethod.GET, "/blocking").build())));
+        }
+        Thread.sleep(100);
+        blocked.countDown();
+        for (Future<HttpResponse> future : futures) {
+            assertEquals("blocking", new String(future.get().body(), UTF_8));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void create_invalid_exception() {
+        assertThrows(IllegalArgumentException.class, () -> cache(CacheConfig.builder().ttl(Duration.ZERO).build()));
+    }
+
+    private CacheFilter createFilter(CacheConfig cacheConfig) {
+        return (CacheFilter) cache(cacheConfig,
+                route("/text",
+                        get(request -> HttpResponse.text(200, "text " + (request.principal() != null
+                                ? request.principal().name()
+                                : request.queryParam("q").orElse("")) + count())),
+                        post(_ -> HttpResponse.text(200, "posted" + count()))),
+                route("/error", get(_ -> HttpResponse.text(500, "error" + count()))),
+                route("/private", get(_ -> HttpResponse.builder()
+                        .status(200)
+                        .headers(Map.of("cache-control", "private"))
+                        .body(("private" + count()).getBytes(UTF_8))
+                        .build())),
+                route("/blocking", get(_ -> {
+                    blocked.await();
+                    return HttpResponse.text(200, "blocking" + count());
+                }))).compile();
+    }
+
+    private String count() {
+        calls.incrementAndGet();
+        return "";
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.compress;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class CompressFilterTest {
+
+    private static final String LARGE_TEXT = "Line of a compressible response\n".repeat(1000);
+    private static final String LARGE_JSON = "{\"items\":[" + "{\"name\":\"value\"},".repeat(1000) + "{}]}";
+
+    private final HttpServerConfig config = HttpServerConfig.builder().build();
+
+    private final HttpFilter filter = compress(
+            route("/large", get(_ -> HttpResponse.text(200, LARGE_TEXT))),
+            route("/small", get(_ -> HttpResponse.text(200, "small"))),
+            route("/json", get(_ -> HttpResponse.builder()
+                    .status(200)
+                    .contentType("application/json; charset=utf-8")
+                    .headers(Map.of("etag", "\"abc\""))
+                    .body(LARGE_JSON.getBytes(UTF_8))
+                    .build())),
+            route("/binary", get(_ -> HttpResponse.builder().status(200).contentType("image/png").body(new byte[4096]).build())),
+            route("/stream", get(_ -> HttpResponse.stream(200, "text/plain", output -> output.write(LARGE_TEXT.getBytes(UTF_8))))),
+            route("/empty", get(_ -> HttpResponse.empty(204))));
+
+    @Test
+    void handle_acceptGzip_compressed() throws Exception {
+        HttpResponse response = handle(filter, "/large", "gzip, deflate");
+        assertEquals(200, response.status());
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertEquals("accept-encoding", response.headers().get("vary"));
+        assertTrue(response.body().length < LARGE_TEXT.length());
+        assertEquals(LARGE_TEXT, new String(gunzip(response.body()), UTF_8));
+    }
+
+    @Test
+    void handle_preferDeflate_compressed() throws Exception {
+        HttpResponse response = handle(filter, "/large", "gzip;q=0.5, deflate");
+        assertEquals("deflate", response.headers().get("content-encoding"));
+        assertEquals(LARGE_TEXT, new String(inflate(response.body()), UTF_8));
+    }
+
+    @Test
+    void handle_noAcceptEncoding_uncompressed() throws Exception {
+        HttpResponse response = handle(filter, "/large", null);
+        assertNull(response.headers().get("content-encoding"));
+        assertEquals("accept-encoding", response.headers().get("vary"));
+        assertEquals(LARGE_TEXT, new String(response.body(), UTF_8));
+
+        response = handle(filter, "/large", "identity, gzip;q=0");
+        assertNull(response.headers().get("content-encoding"));
+    }
+
+    @Test
+    void handle_belowThreshold_uncompressed() throws Exception {
+        HttpResponse response = handle(filter, "/small", "gzip");
+        assertNull(response.headers().get("content-encoding"));
+        assertEquals("small", new String(response.body(), UTF_8));
+    }
+
+    @Test
+    void handle_contentTypeWithParameters_compressedWithWeakEtag() throws Exception {
+        HttpResponse response = handle(filter, "/json", "gzip");
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertEquals("W/\"abc\"", response.headers().get("etag"));
+        assertEquals(LARGE_JSON, new String(gunzip(response.body()), UTF_8));
+    }
+
+    @Test
+    void handle_notAllowedContentType_uncompressed() throws Exception {
+        HttpResponse response = handle(filter, "/binary", "gzip");
+        assertNull(response.headers());
+        assertEquals(4096, response.body().length);
+
+        HttpFilter customFilter = compress(CompressConfig.builder().threshold(0).contentTypes(List.of("image/png")).build(),
+                route("/binary", get(_ -> HttpResponse.builder().status(200).contentType("image/png").body(new byte[4096]).build())));
+        response = handle(customFilter, "/binary", "gzip");
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertArrayEquals(new byte[4096], gunzip(response.body()));
+    }
+
+    @Test
+    void handle_noContent_unchanged() throws Exception {
+        HttpResponse response = handle(filter, "/empty", "gzip");
+        assertEquals(204, response.status());
+        assertNull(response.headers());
+    }
+
+    @Test
+    void handle_streamingResponse_compressedWhileWriting() throws Exception {
+        HttpResponse response = handle(filter, "/stream", "gzip");
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertEquals(-1, response.bodyWriter().length());
+        assertEquals(LARGE_TEXT, new String(gunzip(write(response)), UTF_8));
+    }
+
+    @Test
+    void handle_streamingMode_compressedWhileWriting() throws Exception {
+        HttpFilter streamingFilter = compress(CompressConfig.builder().streaming(true).build(),
+                route("/large", get(_ -> HttpResponse.text(200, LARGE_TEXT))));
+        HttpResponse response = handle(streamingFilter, "/large", "gzip");
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertNull(response.body());
+        assertEquals(LARGE_TEXT, new String(gunzip(write(response)), UTF_8));
+    }
+
+    private HttpResponse handle(HttpFilter filter, String path, String acceptEncoding) throws Exception {
+        HttpRequest request = HttpRequest.builder()
+                .method(HttpMethod.GET)
+                .path(path)
+                .pathParams(Map.of())
+                .headers(acceptEncoding == null ? Map.of() : Map.of("accept-encoding", acceptEncoding))
+                .build();
+        return filter.compile().handle(path, request, config);
+    }
+
+    private static byte[] write(HttpResponse response) throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        response.bodyWriter().write(buffer);
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        try (InputStream input = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readAllBytes();
+        }
+    }
+}
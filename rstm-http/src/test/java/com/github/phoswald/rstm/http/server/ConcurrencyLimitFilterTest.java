@@ -0,0 +1,160 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createRequest;
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.handle;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.limitConcurrency;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.metrics.MetricsRegistry;
+
+class ConcurrencyLimitFilterTest {
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void cleanup() {
+        blocked.countDown();
+        executor.close();
+    }
+
+    @Test
+    void handle_saturatedNoQueue_serviceUnavailable() throws Exception {
+        ConcurrencyLimitFilter testee = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(2).build());
+        Future<HttpResponse> first = submit(testee, "/blocking");
+        Future<HttpResponse> second = submit(testee, "/blocking");
+        awaitValue(testee.limiter()::inFlight, 2);
+
+        assertEquals(503, handle(testee, createRequest(HttpMethod.GET, "/fast").build()).status());
+
+        blocked.countDown();
+        assertEquals(200, first.get().status());
+        assertEquals(200, second.get().status());
+        assertEquals(0, testee.limiter().inFlight());
+        assertEquals(200, handle(testee, createRequest(HttpMethod.GET, "/fast").build()).status());
+    }
+
+    @Test
+    void handle_saturatedWithQueue_waitsForSlot() throws Exception {
+        ConcurrencyLimitFilter testee = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(1).maxQueued(1).queueTimeout(Duration.ofSeconds(10)).build());
+        Future<HttpResponse> first = submit(testee, "/blocking");
+        awaitValue(testee.limiter()::inFlight, 1);
+        Future<HttpResponse> queued = submit(testee, "/fast");
+        awaitValue(testee.limiter()::queued, 1);
+
+        assertEquals(503, handle(testee, createRequest(HttpMethod.GET, "/fast").build()).status()); // the queue is full
+
+        blocked.countDown();
+        assertEquals(200, first.get().status());
+        assertEquals(200, queued.get().status());
+        assertEquals(0, testee.limiter().queued());
+    }
+
+    @Test
+    void handle_queueTimeout_serviceUnavailable() throws Exception {
+        ConcurrencyLimitFilter testee = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(1).maxQueued(1).queueTimeout(Duration.ofMillis(100)).build());
+        submit(testee, "/blocking");
+        awaitValue(testee.limiter()::inFlight, 1);
+
+        long start = System.nanoTime();
+        assertEquals(503, handle(testee, createRequest(HttpMethod.GET, "/fast").build()).status());
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(100_000_000L));
+        assertEquals(0, testee.limiter().queued());
+    }
+
+    @Test
+    void handle_adaptive_decreasedWhenSlow() throws Exception {
+        ConcurrencyLimitFilter testee = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(10).minConcurrent(2).latencyThreshold(Duration.ofMillis(10)).build());
+        for (int index = 0; index < 20; index++) {
+            handle(testee, createRequest(HttpMethod.GET, "/slow").build());
+        }
+        assertEquals(2, testee.limiter().limit());
+
+        for (int index = 0; index < 20; index++) {
+            handle(testee, createRequest(HttpMethod.GET, "/fast").build());
+        }
+        assertEquals(3, testee.limiter().limit()); // a single client uses no more
+    }
+
+    @Test
+    void handle_metrics_gauges() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ConcurrencyLimitFilter testee = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(1).maxQueued(5).queueTimeout(Duration.ofSeconds(10)).name("api").metrics(metrics).build());
+        submit(testee, "/blocking");
+        awaitValue(testee.limiter()::inFlight, 1);
+        submit(testee, "/fast");
+        awaitValue(testee.limiter()::queued, 1);
+
+        String scrape = new String(handle(metrics.createRoute(), createRequest(HttpMethod.GET, "/metrics").build()).body(), UTF_8);
+        assertThat(scrape, containsString("http_server_concurrency_limit{limiter=\"api\"} 1\n"));
+        assertThat(scrape, containsString("http_server_concurrency_limit_in_flight{limiter=\"api\"} 1\n"));
+        assertThat(scrape, containsString("http_server_concurrency_limit_queued{limiter=\"api\"} 1\n"));
+    }
+
+    @Test
+    void handle_saturatedSiblingRoute_notLimited() throws Exception {
+        ConcurrencyLimitFilter limited = createFilter(ConcurrencyLimitConfig.builder().maxConcurrent(1).build());
+        HttpFilter testee = HttpServerConfig.combine(
+                limited,
+                route("/sibling", get(_ -> HttpResponse.text(200, "sibling")))).compile();
+        Future<HttpResponse> first = submit(testee, "/blocking");
+        awaitValue(limited.limiter()::inFlight, 1);
+
+        assertEquals(200, handle(testee, createRequest(HttpMethod.GET, "/sibling").build()).status());
+        assertNull(handle(testee, createRequest(HttpMethod.GET, "/undefined").build()));
+        assertEquals(503, handle(testee, createRequest(HttpMethod.GET, "/fast").build()).status());
+
+        blocked.countDown();
+        assertEquals(200, first.get().status());
+    }
+
+    @Test
+    void create_invalid_exception() {
+        assertThrows(IllegalArgumentException.class, () -> limitConcurrency(ConcurrencyLimitConfig.builder().build()));
+        assertThrows(IllegalArgumentException.class, () -> limitConcurrency(ConcurrencyLimitConfig.builder().maxConcurrent(2).minConcurrent(3).build()));
+    }
+
+    private ConcurrencyLimitFilter createFilter(ConcurrencyLimitConfig limitConfig) {
+        return (ConcurrencyLimitFilter) limitConcurrency(limitConfig,
+                route("/blocking", get(_ -> {
+                    blocked.await();
+                    return HttpResponse.text(200, "blocking");
+                })),
+                route("/slow", get(_ -> {
+                    Thread.sleep(20);
+                    return HttpResponse.text(200, "slow");
+                })),
+                route("/fast", get(_ -> HttpResponse.text(200, "fast")))).compile();
+    }
+
+    private Future<HttpResponse> submit(HttpFilter filter, String path) {
+        return executor.submit(() -> handle(filter, createRequest(HttpMethod.GET, path).build()));
+    }
+
+    private static void awaitValue(IntSupplier supplier, int value) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && supplier.getAsInt() != value; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(value, supplier.getAsInt());
+    }
+}
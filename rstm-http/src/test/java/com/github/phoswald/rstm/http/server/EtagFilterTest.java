@@ -0,0 +1,119 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createRequest;
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.handle;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.auth;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.etag;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.post;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpEtags;
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class EtagFilterTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void handle_body_weakEtag() throws Exception {
+        HttpFilter testee = createFilter();
+
+        HttpResponse response = handle(testee, createRequest(HttpMethod.GET, "/text").build());
+        assertEquals(200, response.status());
+        assertThat(response.headers().get("etag"), matchesPattern("W/\"4-[0-9a-f]+\""));
+        assertEquals(response.headers().get("etag"), handle(testee, createRequest(HttpMethod.GET, "/text").build()).headers().get("etag"));
+        assertNotEquals(response.headers().get("etag"), HttpEtags.createWeak("txet".getBytes(UTF_8)));
+    }
+
+    @Test
+    void handle_matching_notModified() throws Exception {
+        HttpFilter testee = createFilter();
+        String etag = handle(testee, createRequest(HttpMethod.GET, "/text").build()).headers().get("etag");
+
+        HttpResponse response = handle(testee, createRequest(HttpMethod.GET, "/text").headers(Map.of("if-none-match", etag)).build());
+        assertEquals(304, response.status());
+        assertEquals(etag, response.headers().get("etag"));
+        assertEquals("no-cache", response.headers().get("cache-control"));
+        assertNull(response.body());
+        assertNull(response.contentType());
+
+        response = handle(testee, createRequest(HttpMethod.GET, "/text").headers(Map.of("if-none-match", "W/\"other\"")).build());
+        assertEquals(200, response.status());
+    }
+
+    @Test
+    void handle_handlerEtag_kept() throws Exception {
+        HttpFilter testee = createFilter();
+
+        HttpResponse response = handle(testee, createRequest(HttpMethod.GET, "/tagged").build());
+        assertEquals("\"v1\"", response.headers().get("etag"));
+
+        response = handle(testee, createRequest(HttpMethod.GET, "/tagged").headers(Map.of("if-none-match", "\"v1\"")).build());
+        assertEquals(304, response.status());
+    }
+
+    @Test
+    void handle_version_handlerNotCalled() throws Exception {
+        HttpFilter testee = etag(_ -> "42", route("/text", get(_ -> HttpResponse.text(200, "text" + count())))).compile();
+
+        HttpResponse response = handle(testee, createRequest(HttpMethod.GET, "/text").build());
+        assertEquals("W/\"42\"", response.headers().get("etag"));
+        assertEquals(1, calls.get());
+
+        response = handle(testee, createRequest(HttpMethod.GET, "/text").headers(Map.of("if-none-match", "W/\"42\"")).build());
+        assertEquals(304, response.status());
+        assertEquals("W/\"42\"", response.headers().get("etag"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void handle_versionNotRouted_passedOn() throws Exception {
+        HttpFilter testee = HttpServerConfig.combine(
+                etag(_ -> "42",
+                        route("/text", get(_ -> HttpResponse.text(200, "text" + count()))),
+                        route("/secret", auth("admin", get(_ -> HttpResponse.text(200, "secret" + count()))))),
+                route("/sibling", get(_ -> HttpResponse.text(200, "sibling")))).compile();
+        Map<String, String> headers = Map.of("if-none-match", "W/\"42\"");
+
+        assertEquals(304, handle(testee, createRequest(HttpMethod.GET, "/text").headers(headers).build()).status());
+        assertNotEquals(304, handle(testee, createRequest(HttpMethod.GET, "/secret").headers(headers).build()).status());
+        assertEquals(200, handle(testee, createRequest(HttpMethod.GET, "/sibling").headers(headers).build()).status());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void handle_notApplicable_unchanged() throws Exception {
+        HttpFilter testee = createFilter();
+
+        assertNull(handle(testee, createRequest(HttpMethod.POST, "/text").build()).headers());
+        assertNull(handle(testee, createRequest(HttpMethod.GET, "/error").build()).headers());
+        assertNull(handle(testee, createRequest(HttpMethod.GET, "/missing").build()));
+    }
+
+    private HttpFilter createFilter() {
+        return etag(
+                route("/text",
+                        get(_ -> HttpResponse.text(200, "text").toBuilder().headers(Map.of("cache-control", "no-cache")).build()),
+                        post(_ -> HttpResponse.text(200, "posted"))),
+                route("/tagged", get(_ -> HttpResponse.text(200, "tagged").toBuilder().headers(Map.of("etag", "\"v1\"")).build())),
+                route("/error", get(_ -> HttpResponse.text(500, "error")))).compile();
+    }
+
+    private String count() {
+        calls.incrementAndGet();
+        return "";
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.phoswald.rstm.http.server;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpRequestBuilder;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.security.Principal;
+
+/**
+ * Creates the requests with which the filter tests call a filter directly, without a server.
+ */
+final class FilterTestRequests {
+
+    static final HttpServerConfig CONFIG = HttpServerConfig.builder().build();
+
+    private FilterTestRequests() { }
+
+    static HttpRequestBuilder createRequest(HttpMethod method, String path) {
+        return HttpRequest.builder()
+                .method(method)
+                .path(path)
+                .queryParams(Map.of())
+                .pathParams(Map.of())
+                .headers(Map.of());
+    }
+
+    static Principal createPrincipal(String name) {
+        return new Principal(name, List.of(), Principal.LOCAL_PROVIDER, null);
+    }
+
+    static HttpResponse handle(HttpFilter filter, HttpRequest request) throws Exception {
+        return filter.handle(request.path(), request, CONFIG);
+    }
+}
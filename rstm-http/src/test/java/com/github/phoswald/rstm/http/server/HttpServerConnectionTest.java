@@ -0,0 +1,94 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class HttpServerConnectionTest {
+
+    private static final int WARMUP_REQUESTS = 500;
+    private static final int REQUESTS = 2000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void get_keepAlive_connectionReused() throws Exception {
+        try (HttpServer _ = new HttpServer(createConfig(true));
+                HttpClient client = createClient()) {
+            var response = client.send(createRequest(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(Optional.empty(), response.headers().firstValue("connection"));
+        }
+    }
+
+    @Test
+    void get_noKeepAlive_connectionClosed() throws Exception {
+        try (HttpServer _ = new HttpServer(createConfig(false));
+                HttpClient client = createClient()) {
+            var response = client.send(createRequest(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(Optional.of("close"), response.headers().firstValue("connection"));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void get_manyShortRequests_compareKeepAlive() throws Exception {
+        measure(true, WARMUP_REQUESTS);
+        measure(false, WARMUP_REQUESTS);
+        Duration keepAliveElapsed = measure(true, REQUESTS);
+        Duration noKeepAliveElapsed = measure(false, REQUESTS);
+        logger.info("Sending {} requests: keepAlive={}ms, noKeepAlive={}ms", REQUESTS, keepAliveElapsed.toMillis(), noKeepAliveElapsed.toMillis());
+    }
+
+    private Duration measure(boolean keepAlive, int requests) throws Exception {
+        try (HttpServer _ = new HttpServer(createConfig(keepAlive));
+                HttpClient client = createClient()) {
+            var request = createRequest();
+            long start = System.nanoTime();
+            for (int index = 0; index < requests; index++) {
+                assertEquals(200, client.send(request, BodyHandlers.ofString()).statusCode());
+            }
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+
+    private static HttpServerConfig createConfig(boolean keepAlive) {
+        return HttpServerConfig.builder()
+                .httpPort(8080)
+                .executor(HttpExecutor.virtualThreads())
+                .connection(ConnectionConfig.builder()
+                        .backlog(128)
+                        .keepAlive(keepAlive)
+                        .idleTimeout(Duration.ofSeconds(30))
+                        .maxIdleConnections(100)
+                        .maxRequestHeaderSize(16 * 1024)
+                        .requestTimeout(Duration.ofSeconds(10))
+                        .responseTimeout(Duration.ofSeconds(10))
+                        .tcpNoDelay(true)
+                        .build())
+                .filter(route("/short", get(_ -> HttpResponse.text(200, "Short response"))))
+                .build();
+    }
+
+    private static HttpClient createClient() {
+        return HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    private static java.net.http.HttpRequest createRequest() {
+        return java.net.http.HttpRequest.newBuilder(URI.create("http://localhost:8080/short")).build();
+    }
+}
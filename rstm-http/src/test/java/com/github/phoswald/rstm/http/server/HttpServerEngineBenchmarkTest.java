@@ -0,0 +1,144 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.rstm.http.HttpResponse;
+
+/**
+ * Compares the throughput and the latency of the engines, with clients that send requests on keep-alive connections,
+ * one by one or pipelined (like wrk with a pipeline script). The latency is measured per batch of pipelined requests.
+ *
+ * Excluded from the regular build, run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class HttpServerEngineBenchmarkTest {
+
+    private static final int CLIENTS = 16;
+    private static final int WARMUP_REQUESTS = 256;
+    private static final int REQUESTS = 1024; // a multiple of the pipeline depth
+    private static final int PIPELINE_DEPTH = 16;
+    private static final byte[] REQUEST = "GET /short HTTP/1.1\r\nhost: localhost\r\n\r\n".getBytes(ISO_8859_1);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void get_concurrentClients_compareEngines() throws Exception {
+        measure(HttpEngine.jdk(), WARMUP_REQUESTS, 1);
+        measure(HttpEngine.nio(), WARMUP_REQUESTS, 1);
+        Result jdk = measure(HttpEngine.jdk(), REQUESTS, 1);
+        Result nio = measure(HttpEngine.nio(), REQUESTS, 1);
+        logger.info("Sending {} requests from {} clients: jdk={}, nio={}", REQUESTS, CLIENTS, jdk, nio);
+        assertEquals(CLIENTS * REQUESTS, jdk.requests());
+        assertEquals(CLIENTS * REQUESTS, nio.requests());
+    }
+
+    @Test
+    void get_pipelinedClients_compareEngines() throws Exception {
+        measure(HttpEngine.jdk(), WARMUP_REQUESTS, PIPELINE_DEPTH);
+        measure(HttpEngine.nio(), WARMUP_REQUESTS, PIPELINE_DEPTH);
+        Result jdk = measure(HttpEngine.jdk(), REQUESTS, PIPELINE_DEPTH);
+        Result nio = measure(HttpEngine.nio(), REQUESTS, PIPELINE_DEPTH);
+        logger.info("Sending {} requests from {} clients, pipelined by {}: jdk={}, nio={}", REQUESTS, CLIENTS, PIPELINE_DEPTH, jdk, nio);
+        assertEquals(CLIENTS * REQUESTS, jdk.requests());
+        assertEquals(CLIENTS * REQUESTS, nio.requests());
+    }
+
+    private static Result measure(HttpEngine engine, int requests, int depth) throws Exception {
+        try (HttpServer _ = new HttpServer(createConfig(engine));
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                futures.add(clients.submit(() -> sendRequests(requests, depth)));
+            }
+            long[] latencies = new long[0];
+            for (Future<long[]> future : futures) {
+                long[] clientLatencies = future.get();
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + clientLatencies.length);
+                System.arraycopy(clientLatencies, 0, latencies, offset, clientLatencies.length);
+            }
+            return Result.create(Duration.ofNanos(System.nanoTime() - start), latencies.length * depth, latencies);
+        }
+    }
+
+    private static long[] sendRequests(int requests, int depth) throws IOException {
+        long[] latencies = new long[requests / depth];
+        byte[] batch = new byte[REQUEST.length * depth];
+        for (int index = 0; index < depth; index++) {
+            System.arraycopy(REQUEST, 0, batch, index * REQUEST.length, REQUEST.length);
+        }
+        try (Socket socket = new Socket("localhost", 8080)) {
+            OutputStream output = socket.getOutputStream();
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            for (int index = 0; index < latencies.length; index++) {
+                long start = System.nanoTime();
+                output.write(batch);
+                output.flush();
+                for (int response = 0; response < depth; response++) {
+                    readResponse(input);
+                }
+                latencies[index] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    private static void readResponse(InputStream input) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (head.length() < 4 || !head.substring(head.length() - 4).equals("\r\n\r\n")) {
+            int b = input.read();
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            head.append((char) b);
+        }
+        String lowerCaseHead = head.toString().toLowerCase(Locale.ROOT);
+        int start = lowerCaseHead.indexOf("content-length:") + 15;
+        int length = Integer.parseInt(lowerCaseHead.substring(start, lowerCaseHead.indexOf('\r', start)).strip());
+        input.readNBytes(length);
+    }
+
+    private static HttpServerConfig createConfig(HttpEngine engine) {
+        return HttpServerConfig.builder()
+                .httpPort(8080)
+                .engine(engine)
+                .executor(HttpExecutor.virtualThreads())
+                .filter(route("/short", get(_ -> HttpResponse.text(200, "Short response"))))
+                .build();
+    }
+
+    private record Result(int requests, long requestsPerSecond, Duration p50, Duration p99) {
+
+        static Result create(Duration elapsed, int requests, long[] latencies) {
+            Arrays.sort(latencies);
+            return new Result(
+                    requests,
+                    requests * 1_000_000_000L / Math.max(1, elapsed.toNanos()),
+                    Duration.ofNanos(latencies[latencies.length / 2]),
+                    Duration.ofNanos(latencies[latencies.length * 99 / 100]));
+        }
+    }
+}
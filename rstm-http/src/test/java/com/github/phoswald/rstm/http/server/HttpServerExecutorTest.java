@@ -0,0 +1,91 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class HttpServerExecutorTest {
+
+    private static final int REQUESTS = 8;
+    private static final Duration DELAY = Duration.ofMillis(250);
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void get_defaultExecutor_sequential() throws Exception {
+        Duration elapsed = measure(null);
+        assertThat(elapsed, greaterThanOrEqualTo(DELAY.multipliedBy(REQUESTS)));
+    }
+
+    @Test
+    void get_virtualThreads_parallel() throws Exception {
+        Duration elapsed = measure(HttpExecutor.virtualThreads());
+        assertThat(elapsed, lessThan(DELAY.multipliedBy(REQUESTS / 2)));
+    }
+
+    @Test
+    void get_platformThreads_parallel() throws Exception {
+        Duration elapsed = measure(HttpExecutor.platformThreads(REQUESTS));
+        assertThat(elapsed, lessThan(DELAY.multipliedBy(REQUESTS / 2)));
+    }
+
+    @Test
+    void get_platformThreadsBounded_partiallyParallel() throws Exception {
+        Duration elapsed = measure(HttpExecutor.platformThreads(REQUESTS / 2));
+        assertThat(elapsed, greaterThanOrEqualTo(DELAY.multipliedBy(2)));
+        assertThat(elapsed, lessThan(DELAY.multipliedBy(REQUESTS)));
+    }
+
+    @Test
+    void get_customExecutor_parallel() throws Exception {
+        try (ExecutorService executor = Executors.newCachedThreadPool()) {
+            Duration elapsed = measure(HttpExecutor.custom(executor));
+            assertThat(elapsed, lessThan(DELAY.multipliedBy(REQUESTS / 2)));
+        }
+    }
+
+    @Test
+    void platformThreads_invalid_exception() {
+        assertThrows(IllegalArgumentException.class, () -> HttpExecutor.platformThreads(0));
+    }
+
+    private Duration measure(HttpExecutor executor) throws Exception {
+        HttpServerConfig config = HttpServerConfig.builder()
+                .httpPort(8080)
+                .executor(executor)
+                .filter(route("/slow", get(_ -> {
+                    Thread.sleep(DELAY);
+                    return HttpResponse.text(200, "Slow response");
+                })))
+                .build();
+        try (HttpServer _ = new HttpServer(config)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<java.net.http.HttpResponse<String>>> responses = IntStream.range(0, REQUESTS)
+                    .mapToObj(_ -> client.sendAsync(java.net.http.HttpRequest.newBuilder(URI.create("http://localhost:8080/slow")).build(), BodyHandlers.ofString()))
+                    .toList();
+            for (var response : responses) {
+                assertEquals(200, response.get().statusCode());
+                assertEquals("Slow response", response.get().body());
+            }
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+}
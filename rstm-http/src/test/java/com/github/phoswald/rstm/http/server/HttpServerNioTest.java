@@ -0,0 +1,322 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.combine;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.post;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class HttpServerNioTest {
+
+    private static final String LINE = "Line of a streamed response\n";
+    private static final byte[] LARGE_BODY = "0123456789abcdef".repeat(64 * 1024).getBytes(UTF_8);
+
+    private static final HttpServerConfig config = HttpServerConfig.builder()
+            .httpPort(8080)
+            .engine(HttpEngine.nio())
+            .filter(combine(
+                    route("/dynamic",
+                            get(_ -> HttpResponse.text(200, "Response for GET")),
+                            post(request -> HttpResponse.text(200, "Response for POST of " + request.text()))),
+                    route("/dynamic/param/{name}",
+                            get(request -> HttpResponse.text(200, "Response for GET with name=" + request.pathParam("name").orElse(null)))),
+                    route("/dynamic/query",
+                            get(request -> HttpResponse.text(200, "Response for GET with q1=" + request.queryParam("q1").orElse(null) + " and q2=" + request.queryParam("q2").orElse(null)))),
+                    route("/dynamic/form",
+                            post(request -> HttpResponse.text(200, "Response for POST with f1=" + request.formParam("f1").orElse(null) + " and f2=" + request.formParam("f2").orElse(null)))),
+                    route("/dynamic/headers",
+                            get(request -> HttpResponse.text(200, "Response for GET with h1=" + request.header("X-Test").orElse(null) + " and c1=" + request.cookie("c1").orElse(null) + " and session=" + request.session()))),
+                    route("/dynamic/upload",
+                            post(request -> HttpResponse.text(200, "Received " + request.bodyStream().transferTo(OutputStream.nullOutputStream()) + " bytes"))),
+                    route("/dynamic/download",
+                            get(_ -> HttpResponse.stream(200, "text/plain", output -> {
+                                for (int i = 0; i < 1000; i++) {
+                                    output.write(LINE.getBytes(UTF_8));
+                                }
+                            }))),
+                    route("/dynamic/large",
+                            get(_ -> HttpResponse.builder().status(200).contentType("text/plain").body(LARGE_BODY).build())),
+                    route("/dynamic/empty",
+                            get(_ -> HttpResponse.empty(204))),
+                    route("/dynamic/failing",
+                            get(_ -> { throw new IllegalStateException(""); }))
+            ))
+            .build();
+
+    private static final HttpServer testee = new HttpServer(config);
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @AfterAll
+    static void cleanup() {
+        testee.close();
+    }
+
+    @Test
+    void get_text_success() throws Exception {
+        var response = client.send(createRequest("/dynamic").build(), BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.of("text/plain"), response.headers().firstValue("content-type"));
+        assertEquals(Optional.of("16"), response.headers().firstValue("content-length"));
+        assertTrue(response.headers().firstValue("date").isPresent());
+        assertEquals("Response for GET", response.body());
+    }
+
+    @Test
+    void get_noRoute_notFound() throws Exception {
+        assertEquals(404, client.send(createRequest("/undefined").build(), BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void get_failing_internalServerError() throws Exception {
+        assertEquals(500, client.send(createRequest("/dynamic/failing").build(), BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void get_empty_noContent() throws Exception {
+        var response = client.send(createRequest("/dynamic/empty").build(), BodyHandlers.ofString());
+        assertEquals(204, response.statusCode());
+        assertEquals(Optional.empty(), response.headers().firstValue("content-length"));
+    }
+
+    @Test
+    void get_params_decoded() throws Exception {
+        var response = client.send(createRequest("/dynamic/param/a%20b").build(), BodyHandlers.ofString());
+        assertEquals("Response for GET with name=a b", response.body());
+        response = client.send(createRequest("/dynamic/query?q1=v%C3%A4&q2=x+y").build(), BodyHandlers.ofString());
+        assertEquals("Response for GET with q1=vä and q2=x y", response.body());
+    }
+
+    @Test
+    void get_headers_caseInsensitive() throws Exception {
+        var response = client.send(createRequest("/dynamic/headers")
+                .header("x-TEST", "v1")
+                .header("cookie", "c1=v2; session=s1").build(), BodyHandlers.ofString());
+        assertEquals("Response for GET with h1=v1 and c1=v2 and session=s1", response.body());
+    }
+
+    @Test
+    void post_text_success() throws Exception {
+        var response = client.send(createRequest("/dynamic").POST(BodyPublishers.ofString("€ äöü")).build(), BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("Response for POST of € äöü", response.body());
+    }
+
+    @Test
+    void post_form_success() throws Exception {
+        var response = client.send(createRequest("/dynamic/form")
+                .header("content-type", "application/x-www-form-urlencoded")
+                .POST(BodyPublishers.ofString("f1=v1&f2=v%262")).build(), BodyHandlers.ofString());
+        assertEquals("Response for POST with f1=v1 and f2=v&2", response.body());
+    }
+
+    @Test
+    void post_largeBody_success() throws Exception {
+        var response = client.send(createRequest("/dynamic/upload").POST(BodyPublishers.ofByteArray(LARGE_BODY)).build(), BodyHandlers.ofString());
+        assertEquals("Received " + LARGE_BODY.length + " bytes", response.body());
+    }
+
+    @Test
+    void get_largeBody_success() throws Exception {
+        var response = client.send(createRequest("/dynamic/large").build(), BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.of(Integer.toString(LARGE_BODY.length)), response.headers().firstValue("content-length"));
+        assertEquals(new String(LARGE_BODY, UTF_8), new String(response.body(), UTF_8));
+    }
+
+    @Test
+    void post_largeBodyKeepAlive_nextRequestProcessed() throws Exception {
+        byte[] body = new byte[100_000];
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "POST /dynamic/upload HTTP/1.1\r\nhost: localhost\r\ncontent-length: " + body.length + "\r\n\r\n");
+            socket.getOutputStream().write(body);
+            send(socket, "GET /dynamic/param/next HTTP/1.1\r\nhost: localhost\r\nconnection: close\r\n\r\n");
+            String responses = readAll(socket);
+            assertThat(responses, containsString("Received " + body.length + " bytes"));
+            assertThat(responses, containsString("name=next"));
+        }
+    }
+
+    @Test
+    void post_largeBodyNotRead_connectionClosed() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "POST /dynamic/empty HTTP/1.1\r\nhost: localhost\r\ncontent-length: 10000000\r\nexpect: 100-continue\r\n\r\n");
+            String response = readAll(socket);
+            assertThat(response, startsWith("HTTP/1.1 404 Not Found\r\n"));
+            assertThat(response, containsString("connection: close"));
+        }
+    }
+
+    @Test
+    void post_largeBodyExpectContinue_success() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "POST /dynamic/upload HTTP/1.1\r\nhost: localhost\r\ncontent-length: 100000\r\nexpect: 100-continue\r\nconnection: close\r\n\r\n");
+            assertThat(read(socket, "\r\n\r\n"), startsWith("HTTP/1.1 100 Continue\r\n"));
+            socket.getOutputStream().write(new byte[100_000]);
+            assertThat(readAll(socket), containsString("Received 100000 bytes"));
+        }
+    }
+
+    @Test
+    void post_bodyTooLarge_rejected() throws Exception {
+        HttpServerConfig limitedConfig = HttpServerConfig.builder()
+                .httpPort(8081)
+                .engine(HttpEngine.nio())
+                .connection(ConnectionConfig.builder().maxRequestBodySize(1000).build())
+                .filter(config.filter())
+                .build();
+        try (HttpServer _ = new HttpServer(limitedConfig);
+                Socket socket = new Socket("localhost", 8081)) {
+            send(socket, "POST /dynamic/upload HTTP/1.1\r\nhost: localhost\r\ncontent-length: 1001\r\n\r\n");
+            assertThat(readAll(socket), startsWith("HTTP/1.1 413 Content Too Large\r\n"));
+        }
+    }
+
+    @Test
+    void get_stream_chunked() throws Exception {
+        var response = client.send(createRequest("/dynamic/download").build(), BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.empty(), response.headers().firstValue("content-length"));
+        assertEquals(LINE.repeat(1000), response.body());
+    }
+
+    @Test
+    void get_keepAlive_connectionReused() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "GET /dynamic HTTP/1.1\r\nhost: localhost\r\n\r\n");
+            assertThat(read(socket, "Response for GET"), startsWith("HTTP/1.1 200 OK\r\n"));
+            send(socket, "GET /dynamic/param/x HTTP/1.1\r\nhost: localhost\r\n\r\n");
+            assertThat(read(socket, "name=x"), startsWith("HTTP/1.1 200 OK\r\n"));
+        }
+    }
+
+    @Test
+    void get_pipelined_allProcessed() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, """
+                    GET /dynamic/param/a HTTP/1.1\r
+                    host: localhost\r
+                    \r
+                    POST /dynamic HTTP/1.1\r
+                    host: localhost\r
+                    content-length: 4\r
+                    \r
+                    bodyGET /dynamic/param/b HTTP/1.1\r
+                    host: localhost\r
+                    connection: close\r
+                    \r
+                    """);
+            String responses = readAll(socket);
+            assertThat(responses, containsString("name=a"));
+            assertThat(responses, containsString("Response for POST of body"));
+            assertThat(responses, containsString("name=b"));
+            assertThat(responses, containsString("connection: close"));
+        }
+    }
+
+    @Test
+    void get_manyPipelined_inOrder() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            StringBuilder requests = new StringBuilder();
+            for (int index = 0; index < 50; index++) {
+                requests.append("GET /dynamic/param/r").append(index).append(" HTTP/1.1\r\nhost: localhost\r\n\r\n");
+            }
+            requests.append("GET /dynamic/download HTTP/1.1\r\nhost: localhost\r\nconnection: close\r\n\r\n");
+            send(socket, requests.toString());
+            String responses = readAll(socket);
+            int pos = 0;
+            for (int index = 0; index < 50; index++) {
+                pos = responses.indexOf("name=r" + index + "HTTP/1.1 200 OK", pos);
+                assertTrue(pos > 0, "missing or out of order: " + index);
+            }
+            assertThat(responses, endsWith(LINE + "\r\n0\r\n\r\n"));
+        }
+    }
+
+    @Test
+    void post_pipelinedInvalid_previousAnswered() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "GET /dynamic/param/a HTTP/1.1\r\nhost: localhost\r\n\r\nPATCH /dynamic HTTP/1.1\r\n\r\n");
+            String responses = readAll(socket);
+            assertThat(responses, startsWith("HTTP/1.1 200 OK\r\n"));
+            assertThat(responses, containsString("name=aHTTP/1.1 501 Not Implemented\r\n"));
+        }
+    }
+
+    @Test
+    void post_chunkedRequest_success() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "POST /dynamic HTTP/1.1\r\nhost: localhost\r\ntransfer-encoding: chunked\r\nconnection: close\r\n\r\n"
+                    + "5\r\nHello\r\n7;ext=1\r\n, World\r\n0\r\n\r\n");
+            assertThat(readAll(socket), containsString("Response for POST of Hello, World"));
+        }
+    }
+
+    @Test
+    void get_unknownMethod_notImplemented() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "PATCH /dynamic HTTP/1.1\r\nhost: localhost\r\n\r\n");
+            assertThat(readAll(socket), startsWith("HTTP/1.1 501 Not Implemented\r\n"));
+        }
+    }
+
+    @Test
+    void get_headersTooLarge_rejected() throws Exception {
+        try (Socket socket = new Socket("localhost", 8080)) {
+            send(socket, "GET /dynamic HTTP/1.1\r\nhost: localhost\r\nx-large: " + "x".repeat(HttpEngine.DEFAULT_BUFFER_SIZE) + "\r\n\r\n");
+            assertThat(readAll(socket), startsWith("HTTP/1.1 431 Request Header Fields Too Large\r\n"));
+        }
+    }
+
+    private static java.net.http.HttpRequest.Builder createRequest(String path) {
+        return java.net.http.HttpRequest.newBuilder(URI.create("http://localhost:8080" + path));
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(UTF_8));
+        socket.getOutputStream().flush();
+    }
+
+    private static String read(Socket socket, String end) throws IOException {
+        InputStream input = socket.getInputStream();
+        StringBuilder response = new StringBuilder();
+        while (!response.toString().endsWith(end)) {
+            int b = input.read();
+            if (b < 0) {
+                break;
+            }
+            response.append((char) b);
+        }
+        return response.toString();
+    }
+
+    private static String readAll(Socket socket) throws IOException {
+        try {
+            return new String(socket.getInputStream().readAllBytes(), ISO_8859_1);
+        } catch (IOException e) {
+            return e.toString(); // reset by the server
+        }
+    }
+}
@@ -10,12 +10,14 @@ import static com.github.phoswald.rstm.http.server.HttpServerConfig.resources;
 import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.OutputStream;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -52,12 +54,22 @@ class HttpServerTest {
                     route("/dynamic/form",
                             post(request -> HttpResponse.text(200, "Response for POST with f1=" + request.formParam("f1").orElse(null) + " and f2=" + request.formParam("f2").orElse(null) + " and f3=" + request.formParam("f3").orElse(null))),
                             put(request -> HttpResponse.text(200, "Response for PUT with f1=" + request.formParam("f1").orElse(null) + " and f2=" + request.formParam("f2").orElse(null) + " and f3=" + request.formParam("f3").orElse(null)))),
+                    route("/dynamic/headers",
+                            get(request -> HttpResponse.text(200, "Response for GET with h1=" + request.header("X-Test").orElse(null) + " and c1=" + request.cookie("c1").orElse(null) + " and session=" + request.session()))),
                     route("/dynamic/empty",
                             get(_ -> HttpResponse.empty(204))),
                     route("/dynamic/text",
                             get(_ -> HttpResponse.text(200, "Response for GET"))),
                     route("/dynamic/html",
                             get(_ -> HttpResponse.html(200, "<!doctype html><html><head><title>T</title></head><body>B</body></html>"))),
+                    route("/dynamic/upload",
+                            post(request -> HttpResponse.text(200, "Received " + request.bodyStream().transferTo(OutputStream.nullOutputStream()) + " bytes"))),
+                    route("/dynamic/download",
+                            get(_ -> HttpResponse.stream(200, "text/plain", output -> {
+                                for (int i = 0; i < 1000; i++) {
+                                    output.write("Line of a streamed response\n".getBytes(UTF_8));
+                                }
+                            }))),
                     route("/dynamic/redirecting",
                             get(_ -> HttpResponse.redirect(302, "/dynamic/other"))),
                     route("/dynamic/notexisting",
@@ -159,6 +171,86 @@ class HttpServerTest {
                 .header("content-length", "1406");
     }
 
+    @Test
+    void get_fileRange_partialContent() {
+        given()
+                .header("range", "bytes=100-199")
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(206)
+                .header("content-length", "100")
+                .header("content-range", "bytes 100-199/1406");
+    }
+
+    @Test
+    void get_fileSuffixRange_partialContent() {
+        given()
+                .header("range", "bytes=-6")
+                .when()
+                .get("/static/files/index.html")
+                .then()
+                .statusCode(206)
+                .header("content-length", "6")
+                .body(equalTo("html>\n"));
+    }
+
+    @Test
+    void get_fileRangeUnsatisfiable_rangeNotSatisfiable() {
+        given()
+                .header("range", "bytes=2000-")
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(416)
+                .header("content-range", "bytes */1406");
+    }
+
+    @Test
+    void get_fileIfNoneMatch_notModified() {
+        String etag = when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(200)
+                .header("accept-ranges", "bytes")
+                .extract().header("etag");
+        given()
+                .header("if-none-match", etag)
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(304)
+                .header("etag", etag)
+                .body(equalTo(""));
+        given()
+                .header("if-none-match", "\"other\"")
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    void get_fileIfModifiedSince_notModified() {
+        String lastModified = when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(200)
+                .extract().header("last-modified");
+        given()
+                .header("if-modified-since", lastModified)
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(304);
+        given()
+                .header("if-modified-since", "Thu, 01 Jan 1970 00:00:00 GMT")
+                .when()
+                .get("/static/files/favicon.ico")
+                .then()
+                .statusCode(200);
+    }
+
     @Test
     void get_fileNotExisting_notFound() {
         when()
@@ -276,6 +368,18 @@ class HttpServerTest {
                 .body(equalTo("Response for PUT with f1=search and f2=" + ASCII + " and f3=" + UNICODE));
     }
 
+    @Test
+    void get_dynamicHeaders_caseInsensitive() {
+        given()
+                .header("x-TEST", "v1")
+                .header("cookie", "c1=v2; session=s1")
+                .when()
+                .get("/dynamic/headers")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Response for GET with h1=v1 and c1=v2 and session=s1"));
+    }
+
     @Test
     void get_dynamicEmpty_success() {
         when()
@@ -305,6 +409,29 @@ class HttpServerTest {
                 .body("html.body", equalTo("B"));
     }
 
+    @Test
+    void post_dynamicUpload_success() {
+        given()
+                .contentType("application/octet-stream")
+                .body(new byte[5_000_000])
+                .when()
+                .post("/dynamic/upload")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Received 5000000 bytes"));
+    }
+
+    @Test
+    void get_dynamicDownload_chunked() {
+        when()
+                .get("/dynamic/download")
+                .then()
+                .statusCode(200)
+                .contentType("text/plain")
+                .header("transfer-encoding", "chunked")
+                .body(equalTo("Line of a streamed response\n".repeat(1000)));
+    }
+
     @Test
     void get_dynamicRedirecting_statusRedirect() {
         given()
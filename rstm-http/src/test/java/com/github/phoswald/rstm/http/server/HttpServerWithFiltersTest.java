@@ -0,0 +1,114 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.cache;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.combine;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.etag;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.limitConcurrency;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.rateLimit;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class HttpServerWithFiltersTest {
+
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static final CountDownLatch entered = new CountDownLatch(1);
+    private static final CountDownLatch blocked = new CountDownLatch(1);
+
+    private static final HttpServerConfig config = HttpServerConfig.builder()
+            .httpPort(8080)
+            .executor(HttpExecutor.virtualThreads())
+            .filter(combine(
+                    cache(
+                            route("/cached", get(_ -> HttpResponse.text(200, "Call " + calls.incrementAndGet())))),
+                    etag(
+                            route("/tagged", get(_ -> HttpResponse.text(200, "Tagged")))),
+                    rateLimit(RateLimitConfig.builder().permitsPerSecond(0.01).build(),
+                            route("/limited", get(_ -> HttpResponse.text(200, "Limited")))),
+                    limitConcurrency(ConcurrencyLimitConfig.builder().maxConcurrent(1).build(),
+                            route("/blocking", get(_ -> {
+                                entered.countDown();
+                                blocked.await();
+                                return HttpResponse.text(200, "Blocking");
+                            })))
+            ))
+            .build();
+
+    private static final HttpServer testee = new HttpServer(config);
+
+    @AfterAll
+    static void cleanup() {
+        blocked.countDown();
+        testee.close();
+    }
+
+    @Test
+    void get_cache_servedFromCache() {
+        when()
+                .get("/cached")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Call 1"));
+        when()
+                .get("/cached")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Call 1"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void get_etagMatching_notModified() {
+        String etag = when()
+                .get("/tagged")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Tagged"))
+                .extract().header("etag");
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/tagged")
+                .then()
+                .statusCode(304)
+                .header("etag", etag);
+    }
+
+    @Test
+    void get_rateLimitExceeded_tooManyRequests() {
+        when()
+                .get("/limited")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Limited"));
+        when()
+                .get("/limited")
+                .then()
+                .statusCode(429)
+                .header("retry-after", "100");
+    }
+
+    @Test
+    void get_concurrencyLimitReached_serviceUnavailable() throws Exception {
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> when().get("/blocking").statusCode());
+        entered.await();
+        when()
+                .get("/blocking")
+                .then()
+                .statusCode(503);
+        blocked.countDown();
+        assertEquals(200, first.get());
+    }
+}
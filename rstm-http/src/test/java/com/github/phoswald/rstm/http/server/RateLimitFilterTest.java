@@ -0,0 +1,176 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createPrincipal;
+import static com.github.phoswald.rstm.http.server.FilterTestRequests.createRequest;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.rateLimit;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.github.phoswald.rstm.http.metrics.MetricsRegistry;
+
+class RateLimitFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void handle_remoteAddress_limitedPerClient() throws Exception {
+        HttpFilter testee = createFilter(RateLimitConfig.builder().permitsPerSecond(0.5).burst(2).build());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", null).status());
+        assertEquals(200, handle(testee, "/items/2", "10.0.0.1", null).status());
+        HttpResponse rejected = handle(testee, "/items/3", "10.0.0.1", null);
+        assertEquals(429, rejected.status());
+        assertEquals(Map.of("retry-after", "2"), rejected.headers());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.2", null).status());
+    }
+
+    @Test
+    void handle_principal_limitedPerName() throws Exception {
+        HttpFilter testee = createFilter(RateLimitConfig.builder().key(RateLimitKey.PRINCIPAL).permitsPerSecond(1).build());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", "alice").status());
+        assertEquals(429, handle(testee, "/items/1", "10.0.0.2", "alice").status());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", "bob").status());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", null).status());
+        assertEquals(429, handle(testee, "/items/1", "10.0.0.1", null).status());
+    }
+
+    @Test
+    void handle_route_limitedPerTemplate() throws Exception {
+        HttpFilter testee = createFilter(RateLimitConfig.builder().key(RateLimitKey.ROUTE).permitsPerSecond(1).build());
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", null).status());
+        assertEquals(429, handle(testee, "/items/2", "10.0.0.2", null).status());
+        assertEquals(200, handle(testee, "/items/fixed", "10.0.0.1", null).status());
+        assertEquals(200, handle(testee, "/other", "10.0.0.1", null).status());
+        assertEquals(404, handle(testee, "/undefined", "10.0.0.1", null).status()); // not limited
+        assertEquals(404, handle(testee, "/undefined", "10.0.0.1", null).status());
+    }
+
+    @Test
+    void handle_siblingRoute_notLimited() throws Exception {
+        HttpFilter testee = HttpServerConfig.combine(
+                rateLimit(RateLimitConfig.builder().permitsPerSecond(1).build(), createRoutes()),
+                route("/sibling", get(_ -> HttpResponse.text(200, "sibling")))).compile();
+        assertEquals(404, handle(testee, "/undefined", "10.0.0.1", null).status()); // no token taken
+        assertEquals(200, handle(testee, "/items/1", "10.0.0.1", null).status());
+        assertEquals(429, handle(testee, "/items/1", "10.0.0.1", null).status());
+        assertEquals(200, handle(testee, "/sibling", "10.0.0.1", null).status());
+    }
+
+    @Test
+    void acquire_time_refilled() {
+        RateLimitFilter testee = new RateLimitFilter(RateLimitConfig.builder().permitsPerSecond(10).burst(2).build(), createRoutes());
+        long now = System.nanoTime();
+        assertEquals(0, testee.acquire("key", now));
+        assertEquals(0, testee.acquire("key", now));
+        assertEquals(SECOND / 10, testee.acquire("key", now));
+        assertEquals(SECOND / 20, testee.acquire("key", now + SECOND / 20));
+        assertEquals(0, testee.acquire("key", now + SECOND / 10));
+        assertEquals(0, testee.acquire("key", now + SECOND));
+        assertEquals(0, testee.acquire("key", now + SECOND));
+        assertEquals(SECOND / 10, testee.acquire("key", now + SECOND));
+    }
+
+    @Test
+    void acquire_concurrent_exactlyBurst() throws Exception {
+        RateLimitFilter testee = new RateLimitFilter(RateLimitConfig.builder().permitsPerSecond(1).burst(100).build(), createRoutes());
+        long now = System.nanoTime();
+        List<Future<Integer>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    int accepted = 0;
+                    for (int index = 0; index < 1000; index++) {
+                        if (testee.acquire("key", now) == 0) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+        }
+        int accepted = 0;
+        for (Future<Integer> future : futures) {
+            accepted += future.get();
+        }
+        assertEquals(100, accepted);
+    }
+
+    @Test
+    void acquire_manyKeys_bounded() {
+        RateLimitFilter testee = new RateLimitFilter(RateLimitConfig.builder().permitsPerSecond(1).maxKeys(100).build(), createRoutes());
+        long now = System.nanoTime();
+        for (int index = 0; index < 1000; index++) {
+            testee.acquire("10.0.0." + index, now + index * SECOND / 100);
+            assertThat(testee.bucketCount(), lessThanOrEqualTo(100));
+        }
+        assertEquals(0, testee.acquire("10.0.1.0", now + 10 * SECOND)); // full buckets are evicted
+    }
+
+    @Test
+    void acquire_keySpraying_limitedKeySurvives() {
+        RateLimitFilter testee = new RateLimitFilter(RateLimitConfig.builder().permitsPerSecond(0.1).maxKeys(100).build(), createRoutes());
+        long now = System.nanoTime();
+        assertEquals(0, testee.acquire("10.0.0.1", now));
+        assertEquals(10 * SECOND, testee.acquire("10.0.0.1", now));
+        for (int index = 0; index < 1000; index++) {
+            testee.acquire("10.0.1." + index, now + SECOND);
+        }
+        assertEquals(100, testee.bucketCount());
+        assertEquals(9 * SECOND, testee.acquire("10.0.2.0", now + SECOND)); // new keys wait for a full bucket
+        assertEquals(8 * SECOND, testee.acquire("10.0.0.1", now + 2 * SECOND)); // still limited
+        assertEquals(0, testee.acquire("10.0.2.0", now + 10 * SECOND));
+    }
+
+    @Test
+    void handle_metrics_counted() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        HttpFilter testee = createFilter(RateLimitConfig.builder().permitsPerSecond(1).name("api").metrics(metrics).build());
+        handle(testee, "/items/1", "10.0.0.1", null);
+        handle(testee, "/items/1", "10.0.0.1", null);
+        handle(testee, "/items/1", "10.0.0.1", null);
+        String scrape = new String(FilterTestRequests.handle(metrics.createRoute(), createRequest(HttpMethod.GET, "/metrics").build()).body(), UTF_8);
+        assertThat(scrape, containsString("http_server_rate_limit_requests_total{limiter=\"api\",result=\"accepted\"} 1\n"));
+        assertThat(scrape, containsString("http_server_rate_limit_requests_total{limiter=\"api\",result=\"rejected\"} 2\n"));
+    }
+
+    @Test
+    void create_invalid_exception() {
+        assertThrows(IllegalArgumentException.class, () -> rateLimit(RateLimitConfig.builder().build(), createRoutes()));
+        assertThrows(IllegalArgumentException.class, () -> rateLimit(RateLimitConfig.builder().permitsPerSecond(1).burst(0).build(), createRoutes()));
+    }
+
+    private static HttpFilter createFilter(RateLimitConfig rateLimitConfig) {
+        return rateLimit(rateLimitConfig, createRoutes()).compile();
+    }
+
+    private static HttpFilter createRoutes() {
+        return HttpServerConfig.combine(
+                route("/items/fixed", get(_ -> HttpResponse.text(200, "fixed"))),
+                route("/items/{id}", get(request -> HttpResponse.text(200, "item " + request.pathParam("id").orElse(null)))),
+                route("/other", get(_ -> HttpResponse.text(200, "other"))));
+    }
+
+    private static HttpResponse handle(HttpFilter filter, String path, String remoteAddress, String principal) throws Exception {
+        HttpResponse response = FilterTestRequests.handle(filter, createRequest(HttpMethod.GET, path)
+                .remoteAddress(remoteAddress)
+                .principal(principal == null ? null : createPrincipal(principal))
+                .build());
+        return response == null ? HttpResponse.empty(404) : response;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.phoswald.rstm.http.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.security.Principal;
+
+class RequestContextTest {
+
+    private static final Principal PRINCIPAL = new Principal("user", List.of("role"), Principal.LOCAL_PROVIDER, null);
+
+    @Test
+    void bindPathParam_nested_innerHidesOuter() {
+        HttpRequest request = HttpRequest.builder().pathParams(Map.of("a", "0")).build();
+        RequestContext testee = new RequestContext(request);
+        testee.bindPathParam("a", "1");
+        int mark = testee.mark();
+        testee.bindPathParam("a", "2");
+        testee.bindPathParam("b", "3");
+        HttpRequest bound = testee.boundRequest();
+        assertEquals("2", bound.pathParams().get("a"));
+        assertEquals(Map.of("a", "2", "b", "3"), bound.pathParams());
+        assertThrows(UnsupportedOperationException.class, () -> bound.pathParams().put("c", "4"));
+
+        testee.reset(mark);
+        assertEquals(Map.of("a", "1"), testee.boundRequest().pathParams());
+        assertEquals(Map.of("a", "2", "b", "3"), bound.pathParams());
+        assertEquals(Map.of("a", "0"), request.pathParams());
+    }
+
+    @Test
+    void bindPathParam_manyParams_grown() {
+        RequestContext testee = new RequestContext(HttpRequest.builder().pathParams(Map.of()).build());
+        for (int index = 0; index < 20; index++) {
+            testee.bindPathParam("p" + index, "v" + index);
+        }
+        assertEquals(20, testee.boundRequest().pathParams().size());
+        assertEquals("v19", testee.boundRequest().pathParams().get("p19"));
+        testee.reset(0);
+        assertEquals(Map.of(), testee.boundRequest().pathParams());
+    }
+
+    @Test
+    void boundRequest_nothingBound_notCopied() {
+        HttpRequest request = HttpRequest.builder().pathParams(Map.of("a", "1")).build();
+        RequestContext testee = new RequestContext(request);
+        assertSame(request, testee.boundRequest());
+        testee.bindPathParam("b", "2");
+        testee.reset(0);
+        assertSame(request, testee.boundRequest());
+    }
+
+    @Test
+    void bindPrincipal_bound_copiedWithPrincipal() {
+        HttpRequest request = HttpRequest.builder().pathParams(Map.of()).build();
+        RequestContext testee = new RequestContext(request);
+        testee.bindPrincipal(PRINCIPAL);
+        HttpRequest bound = testee.boundRequest();
+        assertSame(PRINCIPAL, bound.principal());
+        assertEquals(request.toBuilder().principal(PRINCIPAL).build(), bound);
+        assertEquals(null, request.principal());
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.phoswald.rstm.http.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+
+class ResourcesFilterTest {
+
+    private final HttpServerConfig config = HttpServerConfig.builder().build();
+    private final ResourcesFilter testee = new ResourcesFilter("/");
+
+    @Test
+    void handle_existing_cached() throws IOException {
+        HttpResponse response = testee.handle("html/index.html", createRequest(Map.of()), config);
+        assertEquals(200, response.status());
+        assertEquals("text/html", response.contentType());
+        assertArrayEquals(readResource("/html/index.html"), response.body());
+        assertTrue(testee.isCached("/html/index.html"));
+    }
+
+    @Test
+    void handle_missing_negativeCached() throws IOException {
+        assertNull(testee.handle("html/missing.html", createRequest(Map.of()), config));
+        assertTrue(testee.isCached("/html/missing.html"));
+        assertNull(testee.handle("html/missing.html", createRequest(Map.of()), config));
+    }
+
+    @Test
+    void handle_acceptGzip_compressed() throws IOException {
+        HttpResponse response = testee.handle("openapi.json", createRequest(Map.of("accept-encoding", "deflate, gzip;q=0.8")), config);
+        assertEquals(200, response.status());
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        assertEquals("accept-encoding", response.headers().get("vary"));
+        byte[] expected = readResource("/openapi.json");
+        assertTrue(response.body().length < expected.length);
+        try (var input = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertArrayEquals(expected, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void handle_acceptGzipDisabled_uncompressed() throws IOException {
+        HttpResponse response = testee.handle("openapi.json", createRequest(Map.of("accept-encoding", "gzip;q=0")), config);
+        assertNull(response.headers().get("content-encoding"));
+        assertEquals("accept-encoding", response.headers().get("vary"));
+        assertArrayEquals(readResource("/openapi.json"), response.body());
+    }
+
+    @Test
+    void handle_notCompressible_uncompressed() throws IOException {
+        HttpResponse response = testee.handle("html/favicon.ico", createRequest(Map.of("accept-encoding", "gzip")), config);
+        assertNull(response.headers().get("content-encoding"));
+        assertNull(response.headers().get("vary"));
+        assertEquals(1406, response.body().length);
+    }
+
+    @Test
+    void handle_ifNoneMatch_notModified() throws IOException {
+        String etag = testee.handle("html/index.html", createRequest(Map.of()), config).headers().get("etag");
+        assertNotNull(etag);
+        HttpResponse response = testee.handle("html/index.html", createRequest(Map.of("if-none-match", etag)), config);
+        assertEquals(304, response.status());
+        assertNull(response.body());
+        response = testee.handle("html/index.html", createRequest(Map.of("if-none-match", "\"other\"")), config);
+        assertEquals(200, response.status());
+    }
+
+    @Test
+    void handle_ifNoneMatchGzip_variantMatched() throws IOException {
+        Map<String, String> gzipHeaders = Map.of("accept-encoding", "gzip");
+        String etag = testee.handle("openapi.json", createRequest(Map.of()), config).headers().get("etag");
+        String gzipEtag = testee.handle("openapi.json", createRequest(gzipHeaders), config).headers().get("etag");
+        assertEquals(etag.replaceAll("\"$", "-gzip\""), gzipEtag);
+
+        HttpResponse response = testee.handle("openapi.json", createRequest(Map.of("accept-encoding", "gzip", "if-none-match", gzipEtag)), config);
+        assertEquals(304, response.status());
+        assertEquals(gzipEtag, response.headers().get("etag"));
+        response = testee.handle("openapi.json", createRequest(Map.of("accept-encoding", "gzip", "if-none-match", etag)), config);
+        assertEquals(200, response.status());
+        assertEquals("gzip", response.headers().get("content-encoding"));
+        response = testee.handle("openapi.json", createRequest(Map.of("if-none-match", gzipEtag)), config);
+        assertEquals(200, response.status());
+        assertNull(response.headers().get("content-encoding"));
+    }
+
+    @Test
+    void handle_cacheFull_leastRecentlyUsedEvicted() throws IOException {
+        var testee = new ResourcesFilter("/", 2000);
+        testee.handle("html/favicon.ico", createRequest(Map.of()), config);
+        testee.handle("html/index.html", createRequest(Map.of()), config);
+        testee.handle("html/missing.html", createRequest(Map.of()), config);
+        assertTrue(testee.isCached("/html/index.html"));
+        assertTrue(testee.isCached("/html/missing.html"));
+        assertFalse(testee.isCached("/html/favicon.ico"));
+    }
+
+    private static HttpRequest createRequest(Map<String, String> headers) {
+        return HttpRequest.builder()
+                .method(HttpMethod.GET)
+                .headers(headers)
+                .build();
+    }
+
+    private static byte[] readResource(String resource) throws IOException {
+        try (InputStream input = ResourcesFilterTest.class.getResourceAsStream(resource)) {
+            return input.readAllBytes();
+        }
+    }
+}
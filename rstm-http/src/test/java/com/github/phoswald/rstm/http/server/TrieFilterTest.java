@@ -0,0 +1,175 @@
+package com.github.phoswald.rstm.http.server;
+
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.combine;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.get;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.post;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.resources;
+import static com.github.phoswald.rstm.http.server.HttpServerConfig.route;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.rstm.http.HttpMethod;
+import com.github.phoswald.rstm.http.HttpRequest;
+import com.github.phoswald.rstm.http.HttpResponse;
+import com.sun.management.ThreadMXBean;
+
+class TrieFilterTest {
+
+    private static final int ROUTES = 500;
+    private static final int ALLOCATION_REQUESTS = 20_000;
+    private static final HttpResponse RESPONSE = HttpResponse.text(200, "GET nested");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final HttpServerConfig config = HttpServerConfig.builder().build();
+
+    private final HttpFilter filter = combine(
+            route("/static/", resources("/html/")),
+            route("/dynamic",
+                    get(_ -> HttpResponse.text(200, "GET dynamic")),
+                    post(_ -> HttpResponse.text(200, "POST dynamic"))),
+            route("/dynamic/{name}",
+                    get(request -> HttpResponse.text(200, "GET name=" + request.pathParam("name").orElse(null)))),
+            route("/dynamic/fixed",
+                    get(_ -> HttpResponse.text(200, "GET fixed"))),
+            route("/nested/{outer}",
+                    route("/inner/{inner}",
+                            get(request -> HttpResponse.text(200, "GET outer=" + request.pathParam("outer").orElse(null) + " inner=" + request.pathParam("inner").orElse(null))))),
+            route("/nested/{outer}/other",
+                    get(_ -> HttpResponse.text(200, "GET other"))));
+
+    @Test
+    void handle_variousPaths_sameAsLinear() throws Exception {
+        HttpFilter compiled = filter.compile();
+        for (String path : List.of(
+                "/", "/undefined", "/static/", "/static/index.html", "/static/subdir/", "/static/missing.html",
+                "/dynamic", "/dynamic/", "/dynamic/1234", "/dynamic/1234/", "/dynamic/fixed", "//dynamic//fixed",
+                "/nested/a/inner/b", "/nested/a/inner", "/nested/a/other", "/nested/a/inner/b/c")) {
+            for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.POST)) {
+                HttpRequest request = createRequest(method, path);
+                assertEquals(describe(filter.handle(path, request, config)), describe(compiled.handle(path, request, config)), method + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void handle_overlappingRoutes_declarationOrder() throws Exception {
+        HttpFilter compiled = filter.compile();
+        assertEquals("GET name=fixed", text(compiled.handle("/dynamic/fixed", createRequest(HttpMethod.GET, "/dynamic/fixed"), config)));
+        assertEquals("GET outer=a inner=b", text(compiled.handle("/nested/a/inner/b", createRequest(HttpMethod.GET, "/nested/a/inner/b"), config)));
+        assertNull(compiled.handle("/dynamic/fixed/", createRequest(HttpMethod.GET, "/dynamic/fixed/"), config));
+    }
+
+    @Test
+    void handle_manyRoutes_fasterThanLinear() throws Exception {
+        List<HttpFilter> routes = new ArrayList<>();
+        for (int index = 0; index < ROUTES; index++) {
+            String text = "GET resource" + index;
+            routes.add(route("/api/v1/resource" + index + "/{id}/items",
+                    get(_ -> HttpResponse.text(200, text)),
+                    post(_ -> HttpResponse.text(200, text))));
+        }
+        HttpFilter linear = combine(routes.toArray(HttpFilter[]::new));
+        HttpFilter compiled = linear.compile();
+        List<HttpRequest> requests = IntStream.range(0, ROUTES)
+                .mapToObj(index -> createRequest(HttpMethod.GET, "/api/v1/resource" + index + "/42/items"))
+                .toList();
+
+        for (int index = 0; index < ROUTES; index++) {
+            HttpRequest request = requests.get(index);
+            assertEquals("GET resource" + index, text(linear.handle(request.path(), request, config)));
+            assertEquals("GET resource" + index, text(compiled.handle(request.path(), request, config)));
+        }
+
+        measure(linear, requests); // warm-up
+        measure(compiled, requests);
+        long linearNanos = measure(linear, requests);
+        long compiledNanos = measure(compiled, requests);
+        logger.info("Dispatching {} routes: linear={}us, compiled={}us", ROUTES, linearNanos / 1000, compiledNanos / 1000);
+        assertThat(compiledNanos, lessThan(linearNanos));
+    }
+
+    @Test
+    void handle_nestedParams_noAllocationPerLevel() throws Exception {
+        String paramsPath = "/a/1/a/2/a/3/a/4/a/5/a/6";
+        String literalsPath = "/a/x1/a/x2/a/x3/a/x4/a/x5/a/x6";
+        HttpFilter echo = nest("{p%d}", get(request -> HttpResponse.text(200, "GET p1=" + request.pathParam("p1").orElse(null) + " p6=" + request.pathParam("p6").orElse(null))));
+        assertEquals("GET p1=1 p6=6", text(echo.handle(paramsPath, createRequest(HttpMethod.GET, paramsPath), config)));
+        assertEquals("GET p1=1 p6=6", text(echo.compile().handle(paramsPath, createRequest(HttpMethod.GET, paramsPath), config)));
+
+        HttpFilter params = nest("{p%d}", get(_ -> RESPONSE));
+        HttpFilter literals = nest("x%d", get(_ -> RESPONSE));
+        measureAllocations(params, paramsPath); // warm-up
+        measureAllocations(literals, literalsPath);
+        measureAllocations(params.compile(), paramsPath);
+        measureAllocations(literals.compile(), literalsPath);
+        long linearParams = measureAllocations(params, paramsPath);
+        long linearLiterals = measureAllocations(literals, literalsPath);
+        long compiledParams = measureAllocations(params.compile(), paramsPath);
+        long compiledLiterals = measureAllocations(literals.compile(), literalsPath);
+        logger.info("Allocating per request with 6 nested routes: linear={}B (literals={}B), compiled={}B (literals={}B)",
+                linearParams, linearLiterals, compiledParams, compiledLiterals);
+        // the handler gets one copy of the request with its path parameters (about 0.5 KB), copying them for every level
+        // would allocate several KB
+        assertThat(linearParams, lessThan(linearLiterals + 768));
+        assertThat(compiledParams, lessThan(compiledLiterals + 768));
+    }
+
+    private long measure(HttpFilter filter, List<HttpRequest> requests) throws Exception {
+        long start = System.nanoTime();
+        for (int iteration = 0; iteration < 10; iteration++) {
+            for (HttpRequest request : requests) {
+                filter.handle(request.path(), request, config);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long measureAllocations(HttpFilter filter, String path) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        HttpRequest request = createRequest(HttpMethod.GET, path);
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for (int iteration = 0; iteration < ALLOCATION_REQUESTS; iteration++) {
+            assertSame(RESPONSE, filter.handle(path, request, config));
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - start) / ALLOCATION_REQUESTS;
+    }
+
+    private static HttpFilter nest(String partFormat, HttpFilter filter) {
+        for (int level = 6; level >= 1; level--) {
+            filter = route("/a/" + partFormat.formatted(level), filter);
+        }
+        return filter;
+    }
+
+    private static HttpRequest createRequest(HttpMethod method, String path) {
+        return HttpRequest.builder()
+                .method(method)
+                .path(path)
+                .pathParams(Map.of())
+                .queryParams(Map.of())
+                .formParams(Map.of())
+                .build();
+    }
+
+    private static String describe(HttpResponse response) {
+        return response == null ? null : response.status() + " " + response.contentType() + " " + text(response);
+    }
+
+    private static String text(HttpResponse response) {
+        return response.body() == null ? null : new String(response.body(), UTF_8);
+    }
+}